@@ -21,6 +21,7 @@ import com.beust.jcommander.ParameterException;
 import com.netflix.spinnaker.halyard.cli.command.v1.GlobalOptions;
 import com.netflix.spinnaker.halyard.cli.command.v1.HalCommand;
 import com.netflix.spinnaker.halyard.cli.ui.v1.AnsiUi;
+import java.util.Arrays;
 
 public class Main {
   public static void main(String[] args) {
@@ -30,7 +31,12 @@ public class Main {
 
     HalCommand hal = new HalCommand();
     JCommander jc = new JCommander(hal);
-    hal.setCommander(jc).configureSubcommands();
+    hal.setCommander(jc);
+    if (requiresFullCommandTree(args)) {
+      hal.configureSubcommands();
+    } else {
+      hal.configureSubcommands(Arrays.asList(args));
+    }
 
     try {
       jc.parse(args);
@@ -58,4 +64,18 @@ public class Main {
       System.exit(1);
     }
   }
+
+  /**
+   * Docs, bash completion and help describe commands that aren't named on the command line, so they
+   * need every command registered. Everything else only registers the commands it names.
+   */
+  private static boolean requiresFullCommandTree(String[] args) {
+    return Arrays.stream(args)
+        .anyMatch(
+            a ->
+                a.equals("--docs")
+                    || a.equals("--print-bash-completion")
+                    || a.equals("-h")
+                    || a.equals("--help"));
+  }
 }
@@ -18,10 +18,20 @@ package com.netflix.spinnaker.halyard.cli.command.v1;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.spinnaker.halyard.cli.services.v1.Daemon;
+import com.netflix.spinnaker.halyard.cli.services.v1.OperationHandler;
+import com.netflix.spinnaker.halyard.core.ConfigEdit;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
 import lombok.AccessLevel;
 import lombok.Getter;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
 
 /** This is the base command, where we will register all the subcommands. */
 @Parameters(separators = "=")
@@ -49,6 +59,20 @@ public class HalCommand extends NestableCommand {
   @Parameter(names = "--docs", description = "Print markdown docs for the hal CLI.")
   private boolean docs;
 
+  @Parameter(
+      names = "--script",
+      description =
+          "Apply every halconfig edit listed in this YAML file at once, saving none of them if any "
+              + "fails. Each edit has an `op` (set, add or remove), a `path` from the root of the "
+              + "halconfig (e.g. deploymentConfigurations/default/providers/kubernetes/accounts), "
+              + "and for set and add, a `value`.")
+  private String script;
+
+  @Parameter(
+      names = {"--no-validate"},
+      description = "Skip validation of the edits applied by --script.")
+  private boolean noValidate = false;
+
   public HalCommand() {
     registerSubcommand(new AdminCommand());
     registerSubcommand(new BackupCommand());
@@ -93,8 +117,32 @@ public class HalCommand extends NestableCommand {
       System.exit(Daemon.isHealthy() ? 0 : -1);
     }
 
-    if (!version && !printBashCompletion && !docs) {
+    if (script != null) {
+      runScript();
+    }
+
+    if (!version && !printBashCompletion && !docs && script == null) {
       showHelp();
     }
   }
+
+  private void runScript() {
+    List<ConfigEdit> edits;
+    try (InputStream is = new FileInputStream(script)) {
+      Object contents = new Yaml(new SafeConstructor()).load(is);
+      edits = new ObjectMapper().convertValue(contents, new TypeReference<List<ConfigEdit>>() {});
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to read " + script + ": " + e.getMessage(), e);
+    }
+
+    if (edits == null || edits.isEmpty()) {
+      throw new IllegalArgumentException("No edits were found in " + script);
+    }
+
+    new OperationHandler<Void>()
+        .setFailureMesssage("Failed to apply the edits in " + script + ".")
+        .setSuccessMessage("Successfully applied " + edits.size() + " edits.")
+        .setOperation(Daemon.applyConfigEdits(!noValidate, edits))
+        .get();
+  }
 }
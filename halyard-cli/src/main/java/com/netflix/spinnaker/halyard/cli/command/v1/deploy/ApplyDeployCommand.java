@@ -97,6 +97,14 @@ public class ApplyDeployCommand extends AbstractRemoteActionCommand {
           "When supplied, wait for all containers to be ready before returning (only applies to Kubernetes V2 provider).")
   boolean waitForCompletion;
 
+  @Parameter(
+      names = "--skip-unchanged-services",
+      description =
+          "When supplied, services whose rendered manifests and config match what is already "
+              + "running are neither redeployed nor waited on "
+              + "(only applies to Kubernetes V2 provider).")
+  boolean skipUnchangedServices;
+
   @Parameter(
       names = "--wait-for-completion-timeout-minutes",
       description = "Specify timeout for deploy apply command.")
@@ -117,6 +125,9 @@ public class ApplyDeployCommand extends AbstractRemoteActionCommand {
     if (waitForCompletion) {
       deployOptions.add(DeployOption.WAIT_FOR_COMPLETION);
     }
+    if (skipUnchangedServices) {
+      deployOptions.add(DeployOption.SKIP_UNCHANGED_SERVICES);
+    }
 
     OperationHandler<RemoteAction> prepHandler =
         new OperationHandler<RemoteAction>()
@@ -31,6 +31,7 @@ import com.netflix.spinnaker.halyard.config.model.v1.plugins.Plugin;
 import com.netflix.spinnaker.halyard.config.model.v1.plugins.PluginRepository;
 import com.netflix.spinnaker.halyard.config.model.v1.security.*;
 import com.netflix.spinnaker.halyard.config.model.v1.webook.WebhookTrust;
+import com.netflix.spinnaker.halyard.core.ConfigEdit;
 import com.netflix.spinnaker.halyard.core.DaemonOptions;
 import com.netflix.spinnaker.halyard.core.RemoteAction;
 import com.netflix.spinnaker.halyard.core.StringBodyRequest;
@@ -38,6 +39,7 @@ import com.netflix.spinnaker.halyard.core.registry.v1.BillOfMaterials;
 import com.netflix.spinnaker.halyard.core.registry.v1.Versions;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
 import com.netflix.spinnaker.halyard.core.tasks.v1.ShallowTaskList;
+import com.netflix.spinnaker.halyard.core.tasks.v1.TaskUpdates;
 import com.netflix.spinnaker.halyard.deploy.deployment.v1.DeployOption;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.RunningServiceDetails;
 import java.util.List;
@@ -89,6 +91,10 @@ public class Daemon {
         ResponseUnwrapper.get(getService().setCurrentDeployment(new StringBodyRequest(name)));
   }
 
+  public static Supplier<Void> applyConfigEdits(boolean validate, List<ConfigEdit> edits) {
+    return () -> ResponseUnwrapper.get(getService().applyConfigEdits(validate, edits));
+  }
+
   public static Supplier<DeploymentConfiguration> getDeploymentConfiguration(
       String deploymentName, boolean validate) {
     return () -> {
@@ -1231,6 +1237,10 @@ public class Daemon {
     return getService().getTask(uuid);
   }
 
+  static TaskUpdates getTaskUpdates(String uuid, long sinceEvent, long waitMillis) {
+    return getService().getTaskUpdates(uuid, sinceEvent, waitMillis);
+  }
+
   public static void interruptTask(String uuid) {
     getService().interruptTask(uuid, "");
   }
@@ -1455,6 +1465,9 @@ public class Daemon {
         .setClient(new OkClient())
         .setConverter(new JacksonConverter(getObjectMapper()))
         .setLogLevel(log ? RestAdapter.LogLevel.FULL : RestAdapter.LogLevel.NONE)
+        // Lets the daemon answer reads that don't need validation directly rather than with a
+        // task to poll; ResponseUnwrapper handles either.
+        .setRequestInterceptor(request -> request.addQueryParam("sync", "true"))
         .build()
         .create(DaemonService.class);
   }
@@ -25,11 +25,13 @@ import com.netflix.spinnaker.halyard.config.model.v1.plugins.Plugin;
 import com.netflix.spinnaker.halyard.config.model.v1.plugins.PluginRepository;
 import com.netflix.spinnaker.halyard.config.model.v1.security.*;
 import com.netflix.spinnaker.halyard.config.model.v1.webook.WebhookTrust;
+import com.netflix.spinnaker.halyard.core.ConfigEdit;
 import com.netflix.spinnaker.halyard.core.DaemonOptions;
 import com.netflix.spinnaker.halyard.core.StringBodyRequest;
 import com.netflix.spinnaker.halyard.core.registry.v1.Versions;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
 import com.netflix.spinnaker.halyard.core.tasks.v1.ShallowTaskList;
+import com.netflix.spinnaker.halyard.core.tasks.v1.TaskUpdates;
 import com.netflix.spinnaker.halyard.deploy.deployment.v1.DeployOption;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +54,12 @@ public interface DaemonService {
   @GET("/v1/tasks/{uuid}/")
   <C, T> DaemonTask<C, T> getTask(@Path("uuid") String uuid);
 
+  @GET("/v1/tasks/{uuid}/events")
+  TaskUpdates getTaskUpdates(
+      @Path("uuid") String uuid,
+      @Query("sinceEvent") long sinceEvent,
+      @Query("waitMillis") long waitMillis);
+
   @PUT("/v1/backup/create")
   DaemonTask<Halconfig, Object> createBackup(@Body String _ignore);
 
@@ -68,6 +76,10 @@ public interface DaemonService {
   @PUT("/v1/config/currentDeployment/")
   DaemonTask<Halconfig, Void> setCurrentDeployment(@Body StringBodyRequest name);
 
+  @POST("/v1/config/batch/")
+  DaemonTask<Halconfig, Void> applyConfigEdits(
+      @Query("validate") boolean validate, @Body List<ConfigEdit> edits);
+
   @GET("/v1/config/deployments/")
   DaemonTask<Halconfig, List<DeploymentConfiguration>> getDeployments();
 
@@ -26,15 +26,20 @@ import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonEvent;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask.State;
+import com.netflix.spinnaker.halyard.core.tasks.v1.TaskUpdates;
+import com.netflix.spinnaker.halyard.core.tasks.v1.TaskUpdates.TaskUpdate;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import retrofit.RetrofitError;
 
 @Slf4j
 public class ResponseUnwrapper {
   private static final Long WAIT_MILLIS = 400L;
+  // How long the daemon holds a request for task updates when nothing changes.
+  private static final long UPDATE_WAIT_MILLIS = 1000L;
   private static int cycle;
   private static String[] cursors = {"_", "-", "^", "*"};
   private static boolean interrupted;
@@ -45,30 +50,57 @@ public class ResponseUnwrapper {
 
   public static <C, T> T get(DaemonTask<C, T> task) {
     int lastTaskCount = 0;
-
-    task = Daemon.getTask(task.getUuid());
     Set<String> loggedEvents = new HashSet<>();
-    while (!task.getState().isTerminal()) {
-      updateCycle();
-      if (interrupted) {
-        Daemon.interruptTask(task.getUuid());
-        throw TaskKilledException.interrupted(new InterruptedException("Interrupted by user"));
-      }
 
-      List<DaemonTask> aggregatedTasks = aggregateTasks(task);
-      lastTaskCount = formatTasks(aggregatedTasks, lastTaskCount);
-      logTasks(aggregatedTasks, loggedEvents);
-      try {
-        Thread.sleep(WAIT_MILLIS);
-      } catch (InterruptedException ignored) {
+    // Tasks run synchronously by the daemon are returned complete, and never stored for polling.
+    if (!task.getState().isTerminal()) {
+      String uuid = task.getUuid();
+      long lastUpdate = 0;
+      boolean streaming = true;
+      while (true) {
+        updateCycle();
+        if (interrupted) {
+          Daemon.interruptTask(uuid);
+          throw TaskKilledException.interrupted(new InterruptedException("Interrupted by user"));
+        }
+
+        TaskUpdates updates;
+        if (streaming) {
+          try {
+            updates = Daemon.getTaskUpdates(uuid, lastUpdate, UPDATE_WAIT_MILLIS);
+            lastUpdate = updates.getLastUpdate();
+          } catch (RetrofitError e) {
+            if (e.getResponse() == null || e.getResponse().getStatus() != 404) {
+              throw e;
+            }
+
+            // The daemon predates task updates, poll the whole task instead.
+            log.info("Task updates unavailable, polling task " + uuid);
+            streaming = false;
+            continue;
+          }
+        } else {
+          try {
+            Thread.sleep(WAIT_MILLIS);
+          } catch (InterruptedException ignored) {
+          }
+
+          updates = new TaskUpdates(Daemon.getTask(uuid), 0);
+        }
+
+        lastTaskCount = formatTasks(updates.getTasks(), lastTaskCount);
+        logTasks(updates.getTasks(), loggedEvents);
+        if (updates.isTerminal()) {
+          break;
+        }
       }
 
-      task = Daemon.getTask(task.getUuid());
+      task = Daemon.getTask(uuid);
     }
 
-    List<DaemonTask> aggregatedTasks = aggregateTasks(task);
-    formatTasks(aggregatedTasks, lastTaskCount);
-    logTasks(aggregatedTasks, loggedEvents);
+    List<TaskUpdate> finalTasks = new TaskUpdates(task, 0).getTasks();
+    formatTasks(finalTasks, lastTaskCount);
+    logTasks(finalTasks, loggedEvents);
 
     DaemonResponse<T> response = task.getResponse();
 
@@ -90,7 +122,7 @@ public class ResponseUnwrapper {
     }
   }
 
-  private static String formatLoggedDaemonTask(DaemonTask task, DaemonEvent event) {
+  private static String formatLoggedDaemonTask(TaskUpdate task, DaemonEvent event) {
     return "Message from task "
         + task.getName()
         + ": "
@@ -99,15 +131,14 @@ public class ResponseUnwrapper {
         + event.getMessage();
   }
 
-  private static void logTasks(List<DaemonTask> tasks, Set<String> loggedEvents) {
+  private static void logTasks(List<TaskUpdate> tasks, Set<String> loggedEvents) {
     // This is expensive, so don't check all tasks to log unless it's necessary.
     if (GlobalOptions.getGlobalOptions().getLog() == Level.OFF) {
       return;
     }
 
-    for (DaemonTask task : tasks) {
-      for (Object oEvent : task.getEvents()) {
-        DaemonEvent event = (DaemonEvent) oEvent;
+    for (TaskUpdate task : tasks) {
+      for (DaemonEvent event : task.getEvents()) {
         String loggedEvent = formatLoggedDaemonTask(task, event);
         if (!loggedEvents.contains(loggedEvent)) {
           loggedEvents.add(loggedEvent);
@@ -117,13 +148,7 @@ public class ResponseUnwrapper {
     }
   }
 
-  private static List<DaemonTask> aggregateTasks(DaemonTask task) {
-    List<DaemonTask> result = new ArrayList<>();
-    task.consumeTaskTree((t) -> result.add((DaemonTask) t));
-    return result;
-  }
-
-  private static int formatTasks(List<DaemonTask> tasks, int lastChildCount) {
+  private static int formatTasks(List<TaskUpdate> tasks, int lastChildCount) {
     if (tasks.size() == 0 || GlobalOptions.getGlobalOptions().isQuiet()) {
       return tasks.size();
     }
@@ -134,28 +159,18 @@ public class ResponseUnwrapper {
     AnsiSnippet snippet = new AnsiSnippet("").addMove(AnsiMove.UP, tasks.size() * 2);
     AnsiPrinter.out.print(snippet.toString());
 
-    for (DaemonTask task : tasks) {
+    for (TaskUpdate task : tasks) {
       formatLastEvent(task);
     }
 
     return tasks.size();
   }
 
-  private static DaemonEvent getLastEvent(DaemonTask task) {
-    int eventCount = task.getEvents().size();
-    DaemonEvent event = null;
-    if (eventCount > 0) {
-      event = (DaemonEvent) task.getEvents().get(eventCount - 1);
-    }
-
-    return event;
-  }
-
-  private static void formatLastEvent(DaemonTask task) {
+  private static void formatLastEvent(TaskUpdate task) {
     AnsiParagraphBuilder builder = new AnsiParagraphBuilder().setMaxLineWidth(-1);
     builder.addSnippet("\r").setErase(AnsiErase.ERASE_LINE);
 
-    DaemonEvent event = getLastEvent(task);
+    DaemonEvent event = task.getLastEvent();
     State state = task.getState();
     String taskName = task.getName();
 
@@ -16,6 +16,7 @@
 
 package com.netflix.spinnaker.halyard.cli.command.v1
 
+import com.beust.jcommander.JCommander
 import com.netflix.spinnaker.halyard.cli.command.v1.config.DeploymentEnvironmentCommand
 import com.netflix.spinnaker.halyard.cli.command.v1.config.EditConfigCommand
 import com.netflix.spinnaker.halyard.cli.command.v1.config.FeaturesCommand
@@ -128,4 +129,49 @@ class CommandTreeSpec extends Specification {
     PluginCommand   | "add"           | AddPluginCommand
   }
 
+  void "lazily configured commands only register the commands named on the command line"() {
+    setup:
+    List<String> args = ["config", "provider", "kubernetes", "account", "list"]
+    HalCommand hal = new HalCommand()
+    JCommander jc = new JCommander(hal)
+    hal.setCommander(jc).configureSubcommands(args)
+
+    when:
+    jc.parse(args as String[])
+
+    then:
+    jc.commands.keySet() == ["config"] as Set
+    jc.commands["config"].commands.keySet() == ["provider"] as Set
+    jc.commands["config"].commands["provider"].commands.keySet() == ["kubernetes"] as Set
+    jc.parsedCommand == "config"
+  }
+
+  void "lazily configured commands parse the same as eagerly configured ones"() {
+    setup:
+    List<String> args = ["config", "provider", "kubernetes", "account", "list"]
+    HalCommand lazy = new HalCommand()
+    JCommander lazyCommander = new JCommander(lazy)
+    lazy.setCommander(lazyCommander).configureSubcommands(args)
+    HalCommand eager = new HalCommand()
+    JCommander eagerCommander = new JCommander(eager)
+    eager.setCommander(eagerCommander).configureSubcommands()
+
+    when:
+    lazyCommander.parse(args as String[])
+    eagerCommander.parse(args as String[])
+
+    then:
+    parsedPath(lazyCommander) == parsedPath(eagerCommander)
+    parsedPath(lazyCommander) == args
+  }
+
+  private static List<String> parsedPath(JCommander commander) {
+    List<String> result = []
+    while (commander.parsedCommand != null) {
+      result.add(commander.parsedCommand)
+      commander = commander.commands[commander.parsedCommand]
+    }
+
+    return result
+  }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.config.v1;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Process-wide cache of parsed halconfig files, keyed on the file's path.
+ *
+ * <p>Entries are stored as an immutable Jackson tree, so every caller can materialize its own
+ * mutable copy of the halconfig without paying for the YAML parse again. An entry is reused as long
+ * as the file's size and modification time are unchanged; when either differs (or the file was
+ * modified too recently to trust its timestamp) the file is re-read and its content digest is
+ * compared before falling back to a full parse.
+ */
+@Slf4j
+public class HalconfigCache {
+  // Files modified within this window are always re-hashed, since a second write within the
+  // filesystem's timestamp granularity would otherwise go unnoticed.
+  private static final long RACY_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+  private final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong parseTimeMillis = new AtomicLong();
+
+  /**
+   * Returns the parsed contents of the file at the given path, parsing it only if it has changed
+   * since it was last seen.
+   *
+   * @param path is the file to read.
+   * @param parser turns the raw file contents into a tree.
+   * @return the (shared, not to be mutated) parsed tree.
+   * @throws IOException if the file can't be read, including when it doesn't exist.
+   */
+  JsonNode get(Path path, Function<byte[], JsonNode> parser) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    long size = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+
+    Entry cached = entries.get(key);
+    boolean racy = System.currentTimeMillis() - lastModified < RACY_WINDOW_MILLIS;
+    if (cached != null && !racy && cached.size == size && cached.lastModified == lastModified) {
+      hits.incrementAndGet();
+      return cached.tree;
+    }
+
+    byte[] contents = Files.readAllBytes(key);
+    byte[] digest = digest(contents);
+    if (cached != null && Arrays.equals(cached.digest, digest)) {
+      hits.incrementAndGet();
+      entries.put(key, new Entry(contents.length, lastModified, digest, cached.tree));
+      return cached.tree;
+    }
+
+    misses.incrementAndGet();
+    long start = System.currentTimeMillis();
+    JsonNode tree = parser.apply(contents);
+    long elapsed = System.currentTimeMillis() - start;
+    parseTimeMillis.addAndGet(elapsed);
+    log.info("Parsed halconfig at " + key + " in " + elapsed + " millis (" + getStats() + ")");
+
+    entries.put(key, new Entry(contents.length, lastModified, digest, tree));
+    return tree;
+  }
+
+  /**
+   * Drops the cached entry for the given path, forcing the next read to re-parse the file.
+   *
+   * @param path is the file to forget.
+   */
+  void invalidate(Path path) {
+    entries.remove(path.toAbsolutePath().normalize());
+  }
+
+  public Stats getStats() {
+    return new Stats()
+        .setEntries(entries.size())
+        .setHits(hits.get())
+        .setMisses(misses.get())
+        .setParseTimeMillis(parseTimeMillis.get());
+  }
+
+  private static byte[] digest(byte[] contents) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(contents);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+  }
+
+  private static class Entry {
+    final long size;
+    final long lastModified;
+    final byte[] digest;
+    final JsonNode tree;
+
+    Entry(long size, long lastModified, byte[] digest, JsonNode tree) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.digest = digest;
+      this.tree = tree;
+    }
+  }
+
+  @Data
+  public static class Stats {
+    int entries;
+    long hits;
+    long misses;
+    long parseTimeMillis;
+  }
+}
@@ -18,6 +18,8 @@ package com.netflix.spinnaker.halyard.config.config.v1;
 
 import static com.netflix.spinnaker.halyard.core.problem.v1.Problem.Severity.FATAL;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.netflix.spinnaker.halyard.config.error.v1.ParseConfigException;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Halconfig;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Node;
@@ -29,16 +31,17 @@ import com.netflix.spinnaker.halyard.core.problem.v1.Problem.Severity;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -69,6 +72,14 @@ public class HalconfigParser {
 
   private boolean useBackup = false;
 
+  private final HalconfigCache halconfigCache = new HalconfigCache();
+
+  // Set on threads that share the task's halconfig with others, which must not re-parentify it.
+  private static final ThreadLocal<Boolean> readOnly = ThreadLocal.withInitial(() -> false);
+
+  // Set on threads working on their own copy of the task's halconfig, see isolated().
+  private static final ThreadLocal<Halconfig> isolatedHalconfig = new ThreadLocal<>();
+
   private Yaml getYamlParser() {
     return applicationContext.getBean(Yaml.class);
   }
@@ -101,12 +112,90 @@ public class HalconfigParser {
     return halconfig;
   }
 
-  private InputStream getHalconfigStream() throws FileNotFoundException {
-    String baseDirectory =
-        useBackup
-            ? halconfigDirectoryStructure.getBackupConfigPath().toString()
-            : halconfigDirectoryStructure.getHalconfigPath();
-    return new FileInputStream(new File(baseDirectory));
+  /**
+   * Parse Halyard's config through the process-wide cache, so that unchanged files are only parsed
+   * once. Every call returns a fresh copy that the caller is free to mutate.
+   *
+   * @param path is the file to read.
+   * @return the fully parsed halconfig.
+   * @see HalconfigCache
+   */
+  private Halconfig parseCachedHalconfig(Path path) throws IOException {
+    JsonNode tree = halconfigCache.get(path, this::parseHalconfigTree);
+    try {
+      return objectMapper.treeToValue(tree, Halconfig.class);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
+  private JsonNode parseHalconfigTree(byte[] contents) {
+    Object obj = getYamlParser().load(new ByteArrayInputStream(contents));
+    return objectMapper.valueToTree(obj);
+  }
+
+  private Path getHalconfigFilePath() {
+    return useBackup
+        ? halconfigDirectoryStructure.getBackupConfigPath()
+        : Paths.get(halconfigDirectoryStructure.getHalconfigPath());
+  }
+
+  /**
+   * Wraps a callable that will run alongside others on the same task, so that its reads of the
+   * task's halconfig leave the tree as it is. The task's halconfig has to be read (and so
+   * parentified) before the callable is started.
+   *
+   * @param callable is the callable to wrap.
+   * @return the wrapped callable.
+   */
+  public static <T> Callable<T> readOnly(Callable<T> callable) {
+    return () -> {
+      boolean previous = readOnly.get();
+      readOnly.set(true);
+      try {
+        return callable.call();
+      } finally {
+        readOnly.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Wraps a callable that will run alongside others on the same task and may edit the halconfig it
+   * reads, so that it works on its own copy of the task's halconfig. Every read of the halconfig by
+   * the callable, lookups included, returns that copy. The task's halconfig has to be read before
+   * the callable is started.
+   *
+   * @param callable is the callable to wrap.
+   * @return the wrapped callable.
+   */
+  public <T> Callable<T> isolated(Callable<T> callable) {
+    return () -> {
+      Halconfig previous = isolatedHalconfig.get();
+      isolatedHalconfig.set(copyHalconfig(readOnly(this::getHalconfig).call()));
+      try {
+        return callable.call();
+      } finally {
+        if (previous == null) {
+          isolatedHalconfig.remove();
+        } else {
+          isolatedHalconfig.set(previous);
+        }
+      }
+    };
+  }
+
+  private Halconfig copyHalconfig(Halconfig halconfig) {
+    try {
+      return transformHalconfig(
+          objectMapper.treeToValue(objectMapper.valueToTree(halconfig), Halconfig.class));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to copy the halconfig: " + e.getMessage(), e);
+    }
+  }
+
+  public HalconfigCache.Stats getCacheStats() {
+    return halconfigCache.getStats();
   }
 
   /**
@@ -116,14 +205,24 @@ public class HalconfigParser {
    * @see Halconfig
    */
   public Halconfig getHalconfig() {
+    Halconfig isolated = isolatedHalconfig.get();
+    if (isolated != null) {
+      return transformHalconfig(isolated);
+    }
+
     Halconfig local = (Halconfig) DaemonTaskHandler.getContext();
+    if (local != null && readOnly.get()) {
+      return local;
+    }
 
     if (local == null) {
       try {
-        InputStream is = getHalconfigStream();
-        local = parseHalconfig(is);
-      } catch (FileNotFoundException ignored) {
+        local = parseCachedHalconfig(getHalconfigFilePath());
+      } catch (FileNotFoundException | NoSuchFileException ignored) {
         // leave res as `null`
+      } catch (IOException e) {
+        throw new HalException(
+            Severity.FATAL, "Failure reading your halconfig: " + e.getMessage(), e);
       } catch (ParserException e) {
         throw new ParseConfigException(e);
       } catch (ScannerException e) {
@@ -239,6 +338,7 @@ public class HalconfigParser {
       writer = new AtomicFileWriter(path);
       writer.write(getYamlParser().dump(objectMapper.convertValue(local, Map.class)));
       writer.commit();
+      halconfigCache.invalidate(path);
     } catch (IOException e) {
       throw new HalException(
           Severity.FATAL,
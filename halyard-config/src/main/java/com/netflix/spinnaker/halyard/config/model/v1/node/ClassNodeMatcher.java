@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.model.v1.node;
+
+import lombok.Getter;
+
+/** Matches every node of a given class. */
+class ClassNodeMatcher extends NodeMatcher {
+  @Getter private final Class<?> nodeClass;
+
+  ClassNodeMatcher(Class<?> nodeClass) {
+    this.nodeClass = nodeClass;
+  }
+
+  @Override
+  public boolean matches(Node n) {
+    return nodeClass.isAssignableFrom(n.getClass());
+  }
+
+  @Override
+  public String getName() {
+    return "Match against [" + nodeClass.getSimpleName() + ":*]";
+  }
+}
@@ -20,8 +20,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import lombok.Setter;
 
 /** Maps the entire contents of ~/.hal/config. */
 @Data
@@ -43,6 +45,9 @@ public class Halconfig extends Node {
   /** List of available deployments. */
   private List<DeploymentConfiguration> deploymentConfigurations = new ArrayList<>();
 
+  /** Index of this config's nodes, built on first use and dropped whenever the tree changes. */
+  @JsonIgnore @Setter(AccessLevel.NONE) private transient volatile NodeIndex nodeIndex;
+
   public Halconfig() {
     DeploymentConfiguration defaultConfig = new DeploymentConfiguration();
     currentDeployment = defaultConfig.getName();
@@ -77,6 +82,26 @@ public class Halconfig extends Node {
     return "halconfig";
   }
 
+  @Override
+  public void parentify() {
+    if (parentify(null)) {
+      // Nodes were added or moved since the index was built.
+      nodeIndex = null;
+    }
+  }
+
+  @JsonIgnore
+  public NodeIndex getNodeIndex() {
+    NodeIndex index = nodeIndex;
+    if (index == null || index.isStale()) {
+      index = new NodeIndex(this);
+      parentify(index);
+      nodeIndex = index;
+    }
+
+    return index;
+  }
+
   @Override
   public NodeIterator getChildren() {
     return NodeIteratorFactory.makeListIterator(
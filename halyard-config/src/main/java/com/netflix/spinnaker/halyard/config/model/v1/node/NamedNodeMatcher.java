@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.model.v1.node;
+
+import lombok.Getter;
+
+/** Matches the nodes of a given class that also have the right name. */
+class NamedNodeMatcher extends NodeMatcher {
+  @Getter private final Class<?> nodeClass;
+  @Getter private final String nodeName;
+
+  NamedNodeMatcher(Class<?> nodeClass, String nodeName) {
+    this.nodeClass = nodeClass;
+    this.nodeName = nodeName;
+  }
+
+  @Override
+  public boolean matches(Node n) {
+    return nodeClass.isAssignableFrom(n.getClass()) && n.getNodeName().equals(nodeName);
+  }
+
+  @Override
+  public String getName() {
+    return "Match against [" + nodeClass.getSimpleName() + ":" + nodeName + "]";
+  }
+}
@@ -162,14 +162,30 @@ public abstract class Node implements Validatable {
 
   @JsonIgnore
   public void parentify() {
+    parentify(null);
+  }
+
+  /**
+   * @param index if not null, records every node beneath this one as its parent is assigned.
+   * @return whether any node beneath this one had a different parent before.
+   */
+  boolean parentify(NodeIndex index) {
+    boolean changed = false;
     NodeIterator children = getChildren();
 
     Node child = children.getNext();
     while (child != null) {
+      changed |= child.parent != this;
       child.parent = this;
-      child.parentify();
+      if (index != null) {
+        index.add(child);
+      }
+
+      changed |= child.parentify(index);
       child = children.getNext();
     }
+
+    return changed;
   }
 
   public List<Field> localFiles() {
@@ -260,17 +276,7 @@ public abstract class Node implements Validatable {
    * @return a NodeMatcher that matches all nodes of given clazz.
    */
   public static NodeMatcher thisNodeAcceptor(Class clazz) {
-    return new NodeMatcher() {
-      @Override
-      public boolean matches(Node n) {
-        return clazz.isAssignableFrom(n.getClass());
-      }
-
-      @Override
-      public String getName() {
-        return "Match against [" + clazz.getSimpleName() + ":*]";
-      }
-    };
+    return new ClassNodeMatcher(clazz);
   }
 
   /**
@@ -279,17 +285,7 @@ public abstract class Node implements Validatable {
    * @return a NodeMatcher that matches all nodes of given clazz that also have the right name.
    */
   public static NodeMatcher namedNodeAcceptor(Class clazz, String name) {
-    return new NodeMatcher() {
-      @Override
-      public boolean matches(Node n) {
-        return clazz.isAssignableFrom(n.getClass()) && n.getNodeName().equals(name);
-      }
-
-      @Override
-      public String getName() {
-        return "Match against [" + clazz.getSimpleName() + ":" + name + "]";
-      }
-    };
+    return new NamedNodeMatcher(clazz, name);
   }
 
   public String debugName() {
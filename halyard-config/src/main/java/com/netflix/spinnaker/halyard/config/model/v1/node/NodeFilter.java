@@ -34,7 +34,13 @@ public class NodeFilter implements Cloneable {
   List<NodeMatcher> matchers = new ArrayList<>();
 
   public boolean matches(Node n) {
-    return matchers.stream().anyMatch(m -> m.matches(n));
+    for (NodeMatcher matcher : matchers) {
+      if (matcher.matches(n)) {
+        return true;
+      }
+    }
+
+    return false;
   }
 
   private NodeFilter withAnyHalconfigFile() {
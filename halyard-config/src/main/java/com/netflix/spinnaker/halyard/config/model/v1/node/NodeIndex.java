@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.model.v1.node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An index of every node in a halconfig by (node class, node name), built as the tree is
+ * parentified.
+ *
+ * <p>Most lookups pin the node they are after by name (a deployment, a provider's account, an
+ * artifact account, a CI master...), so rather than walking the whole tree and evaluating the
+ * filter against every node, the index hands back the few nodes with that name, which are then
+ * checked against the filter along their path to the root. Since the tree can be edited after it
+ * was indexed, a candidate that is no longer reachable from the root invalidates the index, and
+ * the caller is expected to fall back to walking the tree whenever no answer is returned.
+ *
+ * @see NodeFilter
+ */
+@Slf4j
+public class NodeIndex {
+  private final Node root;
+  private final Map<Key, List<Node>> nodesByName = new HashMap<>();
+  private boolean stale = false;
+
+  NodeIndex(Node root) {
+    this.root = root;
+  }
+
+  void add(Node node) {
+    String name;
+    try {
+      name = node.getNodeName();
+    } catch (RuntimeException e) {
+      // Incomplete nodes can't be matched by name either, leave them to the tree walk.
+      return;
+    }
+
+    if (name == null) {
+      return;
+    }
+
+    Class<?> clazz = node.getClass();
+    while (clazz != null && Node.class.isAssignableFrom(clazz)) {
+      nodesByName.computeIfAbsent(new Key(clazz, name), k -> new ArrayList<>()).add(node);
+      clazz = clazz.getSuperclass();
+    }
+  }
+
+  public boolean isStale() {
+    return stale;
+  }
+
+  /**
+   * Answers a lookup from the index if possible.
+   *
+   * @param filter is the filter to lookup by.
+   * @param clazz is the class of the node type we want to find.
+   * @return the nodes matching the filter and clazz, or null if the tree has to be walked instead.
+   */
+  public <T extends Node> List<T> getMatchingNodesOfType(NodeFilter filter, Class<T> clazz) {
+    if (stale) {
+      return null;
+    }
+
+    // A node is only part of the result if it matches one of the filter's matchers itself, so if
+    // the only matchers that could accept a node of this type are pinned by name, the index has
+    // every candidate.
+    NamedNodeMatcher anchor = null;
+    for (NodeMatcher matcher : filter.getMatchers()) {
+      if (matcher instanceof NamedNodeMatcher) {
+        NamedNodeMatcher named = (NamedNodeMatcher) matcher;
+        if (!mayMatchType(named.getNodeClass(), clazz)) {
+          continue;
+        } else if (anchor != null || named.getNodeClass().isInterface()) {
+          return null;
+        }
+
+        anchor = named;
+      } else if (matcher instanceof ClassNodeMatcher) {
+        if (mayMatchType(((ClassNodeMatcher) matcher).getNodeClass(), clazz)) {
+          return null;
+        }
+      } else {
+        return null;
+      }
+    }
+
+    if (anchor == null) {
+      return null;
+    }
+
+    List<Node> candidates =
+        nodesByName.getOrDefault(
+            new Key(anchor.getNodeClass(), anchor.getNodeName()), Collections.emptyList());
+
+    List<T> result = new ArrayList<>();
+    for (Node candidate : candidates) {
+      if (!clazz.isInstance(candidate)) {
+        continue;
+      }
+
+      if (!isReachable(candidate)) {
+        log.info(candidate.debugName() + " was detached since the halconfig was indexed");
+        stale = true;
+        return null;
+      }
+
+      if (candidate.matchesToRoot(filter)) {
+        result.add((T) candidate);
+      }
+    }
+
+    // Nodes added since the tree was indexed are only found by walking it.
+    return result.isEmpty() ? null : result;
+  }
+
+  private boolean isReachable(Node node) {
+    Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    Node child = node;
+    Node parent = node.getParent();
+    while (parent != null) {
+      if (!visited.add(parent) || !hasChild(parent, child)) {
+        return false;
+      }
+
+      child = parent;
+      parent = parent.getParent();
+    }
+
+    return child == root;
+  }
+
+  private static boolean hasChild(Node parent, Node child) {
+    NodeIterator children = parent.getChildren();
+    Node next = children.getNext();
+    while (next != null) {
+      if (next == child) {
+        return true;
+      }
+
+      next = children.getNext();
+    }
+
+    return false;
+  }
+
+  /**
+   * @return false iff no node can be an instance of both classes.
+   */
+  private static boolean mayMatchType(Class<?> matcherClass, Class<?> clazz) {
+    return matcherClass.isInterface()
+        || clazz.isInterface()
+        || matcherClass.isAssignableFrom(clazz)
+        || clazz.isAssignableFrom(matcherClass);
+  }
+
+  private static class Key {
+    final Class<?> clazz;
+    final String name;
+
+    Key(Class<?> clazz, String name) {
+      this.clazz = clazz;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      } else if (!(o instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) o;
+      return clazz == other.clazz && Objects.equals(name, other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(clazz, name);
+    }
+  }
+}
@@ -16,10 +16,14 @@
 
 package com.netflix.spinnaker.halyard.config.model.v1.node;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -28,6 +32,19 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class NodeIteratorFactory {
+  /**
+   * Getters for every field of a node class that could hold a child node, resolved once per class.
+   * Walking the tree happens for every parentify, lookup and validation, so the per-visit cost is
+   * kept to invoking these handles.
+   */
+  private static final ClassValue<List<MethodHandle>> childFieldGetters =
+      new ClassValue<List<MethodHandle>>() {
+        @Override
+        protected List<MethodHandle> computeValue(Class<?> type) {
+          return resolveChildFieldGetters(type);
+        }
+      };
+
   /**
    * Creates an iterator from a Node that allows us to iterate over all sub-fields with type node.
    *
@@ -35,42 +52,65 @@ public class NodeIteratorFactory {
    * @return the resulting interator.
    */
   public static NodeIterator makeReflectiveIterator(Node node) {
-    List<Node> nodes =
-        new ArrayList<>(Arrays.asList(node.getClass().getDeclaredFields()))
-            .stream()
-                .filter(
-                    f -> {
-                      try {
-                        f.setAccessible(true);
-                        return f.get(node) instanceof Node;
-                      } catch (IllegalAccessException e) {
-                        log.warn("Could not retrieve field value for " + f.getName(), e);
-                        return false;
-                      } finally {
-                        f.setAccessible(false);
-                      }
-                    })
-                .map(
-                    n -> {
-                      try {
-                        n.setAccessible(true);
-                        return (Node) n.get(node);
-                      } catch (IllegalAccessException | SecurityException e) {
-                        log.warn("Could not retrieve node value for " + n.getName(), e);
-                        return null;
-                      } finally {
-                        n.setAccessible(false);
-                      }
-                    })
-                .filter(n -> n != null)
-                .collect(Collectors.toList());
-
-    log.trace(
-        "Node " + node.getNodeName() + " reflectively collected " + nodes.size() + " children");
+    List<MethodHandle> getters = childFieldGetters.get(node.getClass());
+    List<Node> nodes = new ArrayList<>(getters.size());
+    for (MethodHandle getter : getters) {
+      Object value;
+      try {
+        value = (Object) getter.invokeExact(node);
+      } catch (Throwable e) {
+        log.warn("Could not retrieve node value for " + getter, e);
+        continue;
+      }
+
+      if (value instanceof Node) {
+        nodes.add((Node) value);
+      }
+    }
+
+    if (log.isTraceEnabled()) {
+      log.trace(
+          "Node " + node.getNodeName() + " reflectively collected " + nodes.size() + " children");
+    }
 
     return new NodeListIterator(nodes);
   }
 
+  private static List<MethodHandle> resolveChildFieldGetters(Class<?> type) {
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodType getterType = MethodType.methodType(Object.class, Node.class);
+    List<MethodHandle> getters = new ArrayList<>();
+
+    for (Field field : type.getDeclaredFields()) {
+      if (Modifier.isStatic(field.getModifiers()) || !mayHoldNode(field.getType())) {
+        continue;
+      }
+
+      try {
+        field.setAccessible(true);
+        getters.add(lookup.unreflectGetter(field).asType(getterType));
+      } catch (IllegalAccessException | SecurityException e) {
+        log.warn("Could not retrieve field value for " + field.getName(), e);
+      } finally {
+        field.setAccessible(false);
+      }
+    }
+
+    log.debug("Resolved " + getters.size() + " candidate child fields for " + type.getSimpleName());
+    return Collections.unmodifiableList(getters);
+  }
+
+  /**
+   * @param type the declared type of a field.
+   * @return false iff a value of this type can never be a node.
+   */
+  private static boolean mayHoldNode(Class<?> type) {
+    return !type.isPrimitive()
+        && (type.isInterface()
+            || type.isAssignableFrom(Node.class)
+            || Node.class.isAssignableFrom(type));
+  }
+
   public static NodeIterator makeListIterator(List<Node> nodes) {
     return new NodeListIterator(nodes);
   }
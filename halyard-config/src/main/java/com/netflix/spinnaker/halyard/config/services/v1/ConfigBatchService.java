@@ -0,0 +1,355 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.services.v1;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.netflix.spinnaker.halyard.config.config.v1.HalconfigDirectoryStructure;
+import com.netflix.spinnaker.halyard.config.config.v1.HalconfigParser;
+import com.netflix.spinnaker.halyard.config.config.v1.StrictObjectMapper;
+import com.netflix.spinnaker.halyard.config.error.v1.IllegalConfigException;
+import com.netflix.spinnaker.halyard.config.model.v1.node.DeploymentConfiguration;
+import com.netflix.spinnaker.halyard.config.model.v1.node.Halconfig;
+import com.netflix.spinnaker.halyard.config.model.v1.node.Node;
+import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemBuilder;
+import com.netflix.spinnaker.halyard.core.ConfigEdit;
+import com.netflix.spinnaker.halyard.core.problem.v1.Problem.Severity;
+import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies an ordered list of {@link ConfigEdit}s to the halconfig in one go.
+ *
+ * <p>The edits are applied to a tree form of the halconfig, which is then read back exactly as a
+ * saved halconfig would be. This way a batch costs a single parse, a single validation of the nodes
+ * it touched, and a single save, no matter how many edits it contains. If any edit can't be
+ * applied, none of them are.
+ */
+@Slf4j
+@Component
+public class ConfigBatchService {
+  @Autowired HalconfigParser halconfigParser;
+
+  @Autowired HalconfigDirectoryStructure halconfigDirectoryStructure;
+
+  @Autowired StrictObjectMapper objectMapper;
+
+  @Autowired ValidateService validateService;
+
+  /**
+   * Applies the edits to the in-memory halconfig, staging any local files they reference.
+   *
+   * @param edits are the edits to apply, in order.
+   * @return the nodes touched by the edits, to be validated.
+   */
+  public List<Node> applyEdits(List<ConfigEdit> edits) {
+    DaemonTaskHandler.newStage("Applying " + edits.size() + " edits");
+    long start = System.currentTimeMillis();
+    JsonNode tree = objectMapper.valueToTree(halconfigParser.getHalconfig());
+    for (int i = 0; i < edits.size(); i++) {
+      ConfigEdit edit = edits.get(i);
+      try {
+        applyEdit(tree, edit);
+      } catch (IllegalArgumentException e) {
+        throw new IllegalConfigException(
+            new ConfigProblemBuilder(
+                    Severity.FATAL,
+                    "Edit "
+                        + (i + 1)
+                        + " ("
+                        + edit.getOp()
+                        + " "
+                        + edit.getPath()
+                        + ") could not be applied: "
+                        + e.getMessage())
+                .build());
+      }
+    }
+
+    Halconfig halconfig;
+    try {
+      halconfig = objectMapper.treeToValue(tree, Halconfig.class);
+    } catch (JsonProcessingException | IllegalArgumentException e) {
+      throw new IllegalConfigException(
+          new ConfigProblemBuilder(
+                  Severity.FATAL, "The edited halconfig is not valid: " + e.getMessage())
+              .build());
+    }
+
+    DaemonTaskHandler.setContext(halconfig);
+    halconfig = halconfigParser.getHalconfig();
+
+    Set<Node> touched = Collections.newSetFromMap(new IdentityHashMap<>());
+    List<Node> result = new ArrayList<>();
+    for (ConfigEdit edit : edits) {
+      List<String> segments = segments(edit.getPath());
+      if (edit.getOp() == ConfigEdit.Operation.REMOVE) {
+        segments = segments.subList(0, segments.size() - 1);
+      }
+
+      Node node = locate(halconfig, segments);
+      if (touched.add(node)) {
+        result.add(node);
+      }
+    }
+
+    for (Node node : result) {
+      Path stagePath = getStagePath(node);
+      if (stagePath != null) {
+        node.recursiveConsume(n -> n.stageLocalFiles(stagePath));
+      }
+    }
+
+    log.info(
+        "Applied "
+            + edits.size()
+            + " edits touching "
+            + result.size()
+            + " nodes in "
+            + (System.currentTimeMillis() - start)
+            + " millis");
+    return result;
+  }
+
+  /**
+   * Validates the nodes touched by a batch of edits, along with everything beneath them.
+   *
+   * @param touched are the nodes returned by {@link #applyEdits}.
+   * @return the problems found.
+   */
+  public ProblemSet validateEdits(List<Node> touched) {
+    return validateService.validateSubtrees(touched);
+  }
+
+  /**
+   * Removes staged files no longer referenced by the halconfig, for every deployment touched.
+   *
+   * @param touched are the nodes returned by {@link #applyEdits}.
+   */
+  public void cleanLocalFiles(List<Node> touched) {
+    Set<Path> stagePaths = new LinkedHashSet<>();
+    for (Node node : touched) {
+      Path stagePath = getStagePath(node);
+      if (stagePath != null) {
+        stagePaths.add(stagePath);
+      }
+    }
+
+    stagePaths.forEach(halconfigParser::cleanLocalFiles);
+  }
+
+  private Path getStagePath(Node node) {
+    DeploymentConfiguration deploymentConfiguration =
+        node instanceof DeploymentConfiguration
+            ? (DeploymentConfiguration) node
+            : node.parentOfType(DeploymentConfiguration.class);
+    if (deploymentConfiguration == null) {
+      return null;
+    }
+
+    return halconfigDirectoryStructure.getStagingPath(deploymentConfiguration.getName());
+  }
+
+  static List<String> segments(String path) {
+    if (path == null) {
+      throw new IllegalArgumentException("No path was given");
+    }
+
+    return Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).collect(Collectors.toList());
+  }
+
+  void applyEdit(JsonNode root, ConfigEdit edit) {
+    if (edit.getOp() == null) {
+      throw new IllegalArgumentException("No operation was given");
+    }
+
+    List<String> segments = segments(edit.getPath());
+    if (segments.isEmpty()) {
+      throw new IllegalArgumentException("The root of the halconfig can't be edited");
+    }
+
+    JsonNode value = NullNode.getInstance();
+    if (edit.getValue() != null) {
+      value = objectMapper.valueToTree(edit.getValue());
+    }
+
+    String last = segments.get(segments.size() - 1);
+    boolean create = edit.getOp() != ConfigEdit.Operation.REMOVE;
+    JsonNode parent = walk(root, segments.subList(0, segments.size() - 1), create);
+
+    switch (edit.getOp()) {
+      case SET:
+        if (parent instanceof ObjectNode) {
+          ((ObjectNode) parent).set(last, value);
+        } else {
+          ((ArrayNode) parent).set(indexOf((ArrayNode) parent, last, true), value);
+        }
+        break;
+      case ADD:
+        JsonNode list = child(parent, last);
+        if (list == null || list.isNull()) {
+          if (!parent.isObject()) {
+            throw new IllegalArgumentException("\"" + last + "\" does not exist");
+          }
+
+          list = ((ObjectNode) parent).putArray(last);
+        } else if (!list.isArray()) {
+          throw new IllegalArgumentException("\"" + last + "\" is not a list");
+        }
+
+        JsonNode name = value.get("name");
+        if (name != null && indexOf((ArrayNode) list, name.asText(), false) >= 0) {
+          throw new IllegalArgumentException("\"" + name.asText() + "\" already exists");
+        }
+
+        ((ArrayNode) list).add(value);
+        break;
+      case REMOVE:
+        if (parent instanceof ObjectNode) {
+          if (((ObjectNode) parent).remove(last) == null) {
+            throw new IllegalArgumentException("\"" + last + "\" does not exist");
+          }
+        } else {
+          ((ArrayNode) parent).remove(indexOf((ArrayNode) parent, last, true));
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown operation " + edit.getOp());
+    }
+  }
+
+  private static JsonNode walk(JsonNode root, List<String> segments, boolean create) {
+    JsonNode current = root;
+    for (String segment : segments) {
+      JsonNode next = child(current, segment);
+      if (next == null || next.isNull()) {
+        if (!create || !current.isObject()) {
+          throw new IllegalArgumentException("\"" + segment + "\" does not exist");
+        }
+
+        next = ((ObjectNode) current).putObject(segment);
+      }
+
+      if (!next.isContainerNode()) {
+        throw new IllegalArgumentException("\"" + segment + "\" has no fields");
+      }
+
+      current = next;
+    }
+
+    return current;
+  }
+
+  private static JsonNode child(JsonNode parent, String segment) {
+    if (parent.isArray()) {
+      int index = indexOf((ArrayNode) parent, segment, false);
+      return index >= 0 ? parent.get(index) : null;
+    }
+
+    return parent.get(segment);
+  }
+
+  private static int indexOf(ArrayNode list, String segment, boolean required) {
+    for (int i = 0; i < list.size(); i++) {
+      JsonNode name = list.get(i).get("name");
+      if (name != null && segment.equals(name.asText())) {
+        return i;
+      }
+    }
+
+    if (segment.chars().allMatch(Character::isDigit) && Integer.parseInt(segment) < list.size()) {
+      return Integer.parseInt(segment);
+    }
+
+    if (required) {
+      throw new IllegalArgumentException("\"" + segment + "\" does not exist");
+    }
+
+    return -1;
+  }
+
+  /** Finds the deepest node along the path, falling back to its closest ancestor. */
+  static Node locate(Halconfig halconfig, List<String> segments) {
+    Node result = halconfig;
+    Object current = halconfig;
+    for (String segment : segments) {
+      current = member(current, segment);
+      if (current == null) {
+        break;
+      }
+
+      if (current instanceof Node) {
+        result = (Node) current;
+      }
+    }
+
+    return result;
+  }
+
+  private static Object member(Object parent, String segment) {
+    if (parent instanceof List) {
+      List<?> list = (List<?>) parent;
+      for (Object element : list) {
+        if (element instanceof Node && segment.equals(((Node) element).getNodeName())) {
+          return element;
+        }
+      }
+
+      if (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit)) {
+        int index = Integer.parseInt(segment);
+        return index < list.size() ? list.get(index) : null;
+      }
+
+      return null;
+    }
+
+    if (parent instanceof Map) {
+      return ((Map<?, ?>) parent).get(segment);
+    }
+
+    for (Class<?> clazz = parent.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+      try {
+        Field field = clazz.getDeclaredField(segment);
+        field.setAccessible(true);
+        return field.get(parent);
+      } catch (NoSuchFieldException e) {
+        // Look in the superclass
+      } catch (IllegalAccessException e) {
+        return null;
+      }
+    }
+
+    return null;
+  }
+}
@@ -46,6 +46,11 @@ public class LookupService {
   public <T extends Node> List<T> getMatchingNodesOfType(NodeFilter filter, Class<T> clazz) {
     Halconfig halconfig = parser.getHalconfig();
 
+    List<T> indexed = halconfig.getNodeIndex().getMatchingNodesOfType(filter, clazz);
+    if (indexed != null) {
+      return indexed;
+    }
+
     return getMatchingNodes(halconfig, filter).stream()
         .filter(clazz::isInstance)
         .map(n -> (T) n)
@@ -64,10 +69,17 @@ public class LookupService {
 
     NodeIterator children = node.getChildren();
 
-    Node recurse = children.getNext(filter);
+    Node recurse = children.getNext();
     while (recurse != null) {
-      result.addAll(getMatchingNodes(recurse, filter));
-      recurse = children.getNext(filter);
+      // Every node visited so far matched, so unless the tree was edited since it was
+      // parentified there is no need to re-check the filter all the way to the root.
+      boolean matches =
+          recurse.getParent() == node ? filter.matches(recurse) : recurse.matchesToRoot(filter);
+      if (matches) {
+        result.addAll(getMatchingNodes(recurse, filter));
+      }
+
+      recurse = children.getNext();
     }
 
     // If we have visited this node, it must have matched the filter.
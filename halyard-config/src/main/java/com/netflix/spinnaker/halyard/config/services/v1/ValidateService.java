@@ -17,38 +17,210 @@
 package com.netflix.spinnaker.halyard.config.services.v1;
 
 import com.netflix.spinnaker.halyard.config.config.v1.HalconfigParser;
+import com.netflix.spinnaker.halyard.config.config.v1.StrictObjectMapper;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Halconfig;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Node;
 import com.netflix.spinnaker.halyard.config.model.v1.node.NodeFilter;
 import com.netflix.spinnaker.halyard.config.model.v1.node.NodeIterator;
+import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemBuilder;
 import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemSetBuilder;
 import com.netflix.spinnaker.halyard.config.validate.v1.ValidatorCollection;
+import com.netflix.spinnaker.halyard.core.problem.v1.Problem.Severity;
 import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
+/**
+ * Runs every validator against the nodes of the halconfig matched by a filter.
+ *
+ * <p>Many validators reach out to registries, cloud APIs and storage backends, so rather than
+ * visiting nodes one at a time the validators for each node are run on a bounded thread pool. Each
+ * node's validation is subject to a timeout counted from when it was submitted, so that validators
+ * hung on every thread of the pool can't hold up the nodes queued behind them forever. The
+ * resulting problems are merged back in the order the nodes appear in the halconfig, so the output
+ * is the same as a sequential run.
+ *
+ * <p>Validation run through {@link #withCachedResults} reuses the problems found for nodes that
+ * haven't changed since they were last validated, see {@link ValidationResultCache}.
+ */
 @Slf4j
 @Component
 public class ValidateService {
+  private static final ThreadLocal<Boolean> cachedResults = ThreadLocal.withInitial(() -> false);
+
   @Autowired HalconfigParser parser;
 
+  @Autowired StrictObjectMapper objectMapper;
+
   @Autowired ValidatorCollection validatorCollection;
 
   @Autowired private ApplicationContext applicationContext;
 
+  /** Number of nodes validated concurrently, 1 or less validates on the calling thread. */
+  @Value("${halyard.validation.parallelism:8}")
+  int parallelism;
+
+  @Value("${halyard.validation.node-timeout-seconds:120}")
+  long nodeTimeoutSeconds;
+
+  @Value("${halyard.validation.cache.ttl-seconds:300}")
+  long cacheTtlSeconds;
+
+  private ExecutorService executor;
+
+  private ValidationResultCache resultCache;
+
+  /**
+   * Runs the given validation, reusing the problems previously found for any node that hasn't
+   * changed since. Meant for validating edits, where most of the halconfig is untouched.
+   *
+   * @param validation is the validation to run, on the calling thread.
+   * @return the result of the validation.
+   */
+  public static <T> T withCachedResults(Supplier<T> validation) {
+    boolean previous = cachedResults.get();
+    cachedResults.set(true);
+    try {
+      return validation.get();
+    } finally {
+      cachedResults.set(previous);
+    }
+  }
+
   public ProblemSet validateMatchingFilter(NodeFilter filter) {
     DaemonTaskHandler.newStage("Running validation");
     Halconfig halconfig = parser.getHalconfig();
-    ConfigProblemSetBuilder psBuilder = new ConfigProblemSetBuilder(applicationContext);
-    recursiveValidate(psBuilder, halconfig, filter);
 
-    return psBuilder.build();
+    List<Node> nodes = new ArrayList<>();
+    collectMatchingNodes(nodes, halconfig, filter);
+    return validateNodes(nodes);
+  }
+
+  /**
+   * Validates each of the given nodes along with everything beneath them, visiting nodes shared by
+   * several of the subtrees only once.
+   *
+   * @param roots are the roots of the subtrees to validate.
+   * @return the problems found.
+   */
+  public ProblemSet validateSubtrees(List<Node> roots) {
+    DaemonTaskHandler.newStage("Running validation");
+    Set<Node> rootSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    rootSet.addAll(roots);
+
+    List<Node> nodes = new ArrayList<>();
+    for (Node root : roots) {
+      boolean nested = false;
+      for (Node parent = root.getParent(); parent != null; parent = parent.getParent()) {
+        nested |= rootSet.contains(parent);
+      }
+
+      if (!nested) {
+        root.recursiveConsume(nodes::add);
+      }
+    }
+
+    return validateNodes(nodes);
   }
 
-  private void recursiveValidate(ConfigProblemSetBuilder psBuilder, Node node, NodeFilter filter) {
+  private ProblemSet validateNodes(List<Node> nodes) {
+    List<String> keys = null;
+    if (cachedResults.get() && cacheTtlSeconds > 0) {
+      keys = getResultCache().keys(nodes, validatorCollection.getValidatorNames());
+    }
+
+    if (parallelism <= 1 || nodes.size() <= 1) {
+      ProblemSet result = new ProblemSet();
+      for (int i = 0; i < nodes.size(); i++) {
+        String key = keys != null ? keys.get(i) : null;
+        ProblemSet cached = key != null ? resultCache.get(key) : null;
+        if (cached != null) {
+          result.addAll(cached);
+          continue;
+        }
+
+        ConfigProblemSetBuilder psBuilder = new ConfigProblemSetBuilder(applicationContext);
+        validateNode(psBuilder, nodes.get(i));
+        ProblemSet problems = psBuilder.build();
+        if (key != null) {
+          resultCache.put(key, problems);
+        }
+
+        result.addAll(problems);
+      }
+
+      return result;
+    }
+
+    // The nodes are validated against the task's halconfig, which the workers only read.
+    parser.getHalconfig();
+
+    List<NodeValidation> validations = new ArrayList<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      NodeValidation validation = new NodeValidation(nodes.get(i));
+      validation.key = keys != null ? keys.get(i) : null;
+      validation.cached = validation.key != null ? resultCache.get(validation.key) : null;
+      if (validation.cached == null) {
+        validation.submitTime = System.currentTimeMillis();
+        validation.future =
+            getExecutor()
+                .submit(DaemonTaskHandler.withCurrentTask(HalconfigParser.readOnly(validation)));
+      }
+
+      validations.add(validation);
+    }
+
+    ProblemSet result = new ProblemSet();
+    try {
+      for (NodeValidation validation : validations) {
+        result.addAll(validation.await(TimeUnit.SECONDS.toMillis(nodeTimeoutSeconds)));
+      }
+    } catch (InterruptedException e) {
+      validations.stream().filter(v -> v.future != null).forEach(v -> v.future.cancel(true));
+      throw new DaemonTaskInterrupted("Interrupted during validation", e);
+    }
+
+    if (keys != null) {
+      log.info("Validation result cache: " + resultCache.getStats());
+    }
+
+    return result;
+  }
+
+  private void collectMatchingNodes(List<Node> nodes, Node node, NodeFilter filter) {
+    nodes.add(node);
+
+    NodeIterator children = node.getChildren();
+
+    Node recurse = children.getNext(filter);
+    while (recurse != null) {
+      collectMatchingNodes(nodes, recurse, filter);
+      recurse = children.getNext(filter);
+    }
+  }
+
+  private void validateNode(ConfigProblemSetBuilder psBuilder, Node node) {
+    long start = System.currentTimeMillis();
     int runCount = validatorCollection.runAllValidators(psBuilder, node);
 
     log.info(
@@ -58,14 +230,86 @@ public class ValidateService {
             + node.getNodeName()
             + "\" with class \""
             + node.getClass().getSimpleName()
-            + "\"");
+            + "\" in "
+            + (System.currentTimeMillis() - start)
+            + " millis");
+  }
 
-    NodeIterator children = node.getChildren();
+  private synchronized ValidationResultCache getResultCache() {
+    if (resultCache == null) {
+      resultCache =
+          new ValidationResultCache(objectMapper, TimeUnit.SECONDS.toMillis(cacheTtlSeconds));
+    }
 
-    Node recurse = children.getNext(filter);
-    while (recurse != null) {
-      recursiveValidate(psBuilder, recurse, filter);
-      recurse = children.getNext(filter);
+    return resultCache;
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      AtomicInteger threadCount = new AtomicInteger();
+      executor =
+          Executors.newFixedThreadPool(
+              parallelism,
+              r -> {
+                Thread thread = new Thread(r, "validation-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+
+    return executor;
+  }
+
+  /** The validation of a single node, run on the executor. */
+  private class NodeValidation implements Callable<ProblemSet> {
+    final Node node;
+    String key;
+    ProblemSet cached;
+    Future<ProblemSet> future;
+    long submitTime;
+
+    NodeValidation(Node node) {
+      this.node = node;
+    }
+
+    @Override
+    public ProblemSet call() {
+      ConfigProblemSetBuilder psBuilder = new ConfigProblemSetBuilder(applicationContext);
+      validateNode(psBuilder, node);
+      ProblemSet problems = psBuilder.build();
+      if (key != null) {
+        resultCache.put(key, problems);
+      }
+
+      return problems;
+    }
+
+    /**
+     * Waits for this validation to finish, giving up once it has been submitted longer than the
+     * timeout, whether it is still running or still queued.
+     */
+    ProblemSet await(long timeoutMillis) throws InterruptedException {
+      if (cached != null) {
+        return cached;
+      }
+
+      long wait = submitTime + timeoutMillis - System.currentTimeMillis();
+      try {
+        return future.get(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        return problem(
+            Severity.WARNING, "Validation timed out after " + timeoutMillis / 1000 + " seconds.");
+      } catch (CancellationException e) {
+        return problem(Severity.WARNING, "Validation was cancelled.");
+      } catch (ExecutionException e) {
+        log.warn("Validation of " + node.debugName() + " failed: ", e.getCause());
+        return problem(Severity.FATAL, "Unexpected exception during validation: " + e.getCause());
+      }
+    }
+
+    private ProblemSet problem(Severity severity, String message) {
+      return new ProblemSet(new ConfigProblemBuilder(severity, message).setNode(node).build());
     }
   }
 }
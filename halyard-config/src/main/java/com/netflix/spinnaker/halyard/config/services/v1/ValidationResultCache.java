@@ -0,0 +1,226 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.services.v1;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.netflix.spinnaker.halyard.config.model.v1.node.Node;
+import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores the problems found when validating a node, so that an edit to the halconfig only
+ * re-validates the nodes it could have affected.
+ *
+ * <p>A node's results are keyed on the validators defined, the content of the node's subtree, and
+ * the node's own fields of each of its ancestors. An edit therefore invalidates the edited node and
+ * its ancestors, but not its siblings or their children. Validators that look beyond that, for
+ * example at sibling accounts or at remote registries and clouds, can go stale, so every result
+ * expires after a fixed TTL.
+ */
+@Slf4j
+class ValidationResultCache {
+  private static final int MAX_ENTRIES = 10000;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final ObjectMapper objectMapper;
+  private final long ttlMillis;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  ValidationResultCache(ObjectMapper objectMapper, long ttlMillis) {
+    this.objectMapper = objectMapper;
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Computes the cache key of each of the given nodes.
+   *
+   * @param nodes are the nodes about to be validated.
+   * @param validatorNames are the names of the validators that will be run.
+   * @return the key of each node, in order. A key is null if the node couldn't be hashed.
+   */
+  List<String> keys(List<Node> nodes, List<String> validatorNames) {
+    Map<Node, byte[]> localDigests = new IdentityHashMap<>();
+    List<String> result = new ArrayList<>(nodes.size());
+    for (Node node : nodes) {
+      try {
+        MessageDigest digest = newDigest();
+        digest.update(String.join(",", validatorNames).getBytes(StandardCharsets.UTF_8));
+        digest.update(node.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        digest.update(objectMapper.writeValueAsBytes(node));
+        Node ancestor = node.getParent();
+        while (ancestor != null) {
+          digest.update(localDigest(localDigests, ancestor));
+          ancestor = ancestor.getParent();
+        }
+
+        result.add(toHex(digest.digest()));
+      } catch (JsonProcessingException | IllegalAccessException | IllegalArgumentException e) {
+        log.warn("Unable to hash " + node.debugName() + ", its results won't be cached: ", e);
+        result.add(null);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @param key is the key of the node, as computed by {@link #keys}.
+   * @return a copy of the stored problems for the node, or null if there are none or they expired.
+   */
+  ProblemSet get(String key) {
+    Entry entry = key == null ? null : entries.get(key);
+    if (entry == null || entry.isExpired()) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    hits.incrementAndGet();
+    return new ProblemSet(entry.problems);
+  }
+
+  void put(String key, ProblemSet problems) {
+    if (key == null) {
+      return;
+    }
+
+    if (entries.size() >= MAX_ENTRIES) {
+      entries.values().removeIf(Entry::isExpired);
+      if (entries.size() >= MAX_ENTRIES) {
+        entries.clear();
+      }
+    }
+
+    entries.put(key, new Entry(new ProblemSet(problems), System.currentTimeMillis() + ttlMillis));
+  }
+
+  Stats getStats() {
+    return new Stats().setEntries(entries.size()).setHits(hits.get()).setMisses(misses.get());
+  }
+
+  /**
+   * Digests the node's own fields, leaving out its children: those are covered by the keys of the
+   * children themselves.
+   */
+  private byte[] localDigest(Map<Node, byte[]> localDigests, Node node)
+      throws IllegalAccessException {
+    byte[] result = localDigests.get(node);
+    if (result != null) {
+      return result;
+    }
+
+    JsonNode tree = objectMapper.valueToTree(node);
+    if (tree instanceof ObjectNode) {
+      ((ObjectNode) tree).remove(childFieldNames(node));
+    }
+
+    result = newDigest().digest(tree.toString().getBytes(StandardCharsets.UTF_8));
+    localDigests.put(node, result);
+    return result;
+  }
+
+  private static List<String> childFieldNames(Node node) throws IllegalAccessException {
+    List<String> result = new ArrayList<>();
+    Class<?> clazz = node.getClass();
+    while (clazz != Object.class) {
+      for (Field field : clazz.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+
+        field.setAccessible(true);
+        if (holdsNode(field.get(node))) {
+          result.add(field.getName());
+        }
+      }
+
+      clazz = clazz.getSuperclass();
+    }
+
+    return result;
+  }
+
+  private static boolean holdsNode(Object value) {
+    if (value instanceof Node) {
+      return true;
+    }
+
+    Collection<?> values = null;
+    if (value instanceof Collection) {
+      values = (Collection<?>) value;
+    } else if (value instanceof Map) {
+      values = ((Map<?, ?>) value).values();
+    }
+
+    return values != null && values.stream().anyMatch(v -> v instanceof Node);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder result = new StringBuilder();
+    for (byte b : bytes) {
+      result.append(String.format("%02x", b));
+    }
+
+    return result.toString();
+  }
+
+  private static class Entry {
+    final ProblemSet problems;
+    final long expiresAt;
+
+    Entry(ProblemSet problems, long expiresAt) {
+      this.problems = problems;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() >= expiresAt;
+    }
+  }
+
+  @Data
+  static class Stats {
+    int entries;
+    long hits;
+    long misses;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.validate.v1;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shares the credentials and API clients that validators build for an account, so that
+ * re-validating an unchanged account reuses its client (and the client's pooled connections and
+ * access tokens) instead of building a new one.
+ *
+ * <p>Clients are keyed on a digest of the fields their credentials were built from, so any change
+ * to those fields builds a new client. Clients that haven't been used for the configured idle time
+ * are evicted, as is the least recently used client once the cache is full. Evicted clients that
+ * are {@link AutoCloseable} are closed.
+ */
+@Slf4j
+@Component
+public class ValidatorClientCache {
+  @Value("${halyard.validation.client-cache.idle-seconds:600}")
+  long idleSeconds;
+
+  @Value("${halyard.validation.client-cache.max-entries:64}")
+  int maxEntries;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Returns the cached client built from the given fields, building it if there is none.
+   *
+   * @param type is the type of client, clients of different types never share an entry.
+   * @param credentialFields are every field the client is built from, including secrets. Only
+   *     their digest is kept.
+   * @param factory builds the client. Exceptions it throws are passed on, and null results aren't
+   *     cached.
+   * @return the client, or null if the factory returned null.
+   */
+  public <T> T get(Class<T> type, List<?> credentialFields, Supplier<T> factory) {
+    String key = key(type, credentialFields);
+    long now = System.currentTimeMillis();
+    evictIdle(now);
+
+    Entry cached = entries.get(key);
+    if (cached != null) {
+      hits.incrementAndGet();
+      cached.lastUsed = now;
+      return type.cast(cached.client);
+    }
+
+    misses.incrementAndGet();
+    T client = factory.get();
+    if (client == null) {
+      return null;
+    }
+
+    if (entries.size() >= maxEntries) {
+      evictLeastRecentlyUsed();
+    }
+
+    // Another validation may have built the same client meanwhile, in which case theirs is kept.
+    Entry existing = entries.putIfAbsent(key, new Entry(client, now));
+    if (existing != null) {
+      close(client);
+      return type.cast(existing.client);
+    }
+
+    log.info("Built a " + type.getSimpleName() + " for validation (" + getStats() + ")");
+    return client;
+  }
+
+  /**
+   * A hit is a client (and its open connections) reused by a validation, a miss a client that had
+   * to be built.
+   */
+  public Stats getStats() {
+    return new Stats()
+        .setEntries(entries.size())
+        .setHits(hits.get())
+        .setMisses(misses.get())
+        .setEvictions(evictions.get());
+  }
+
+  private void evictIdle(long now) {
+    long idleMillis = TimeUnit.SECONDS.toMillis(idleSeconds);
+    entries.forEach(
+        (key, entry) -> {
+          if (now - entry.lastUsed >= idleMillis) {
+            evict(key, entry);
+          }
+        });
+  }
+
+  private void evictLeastRecentlyUsed() {
+    entries.entrySet().stream()
+        .min((e1, e2) -> Long.compare(e1.getValue().lastUsed, e2.getValue().lastUsed))
+        .ifPresent(e -> evict(e.getKey(), e.getValue()));
+  }
+
+  private void evict(String key, Entry entry) {
+    if (entries.remove(key, entry)) {
+      evictions.incrementAndGet();
+      close(entry.client);
+    }
+  }
+
+  private static void close(Object client) {
+    if (client instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) client).close();
+      } catch (Exception e) {
+        log.warn("Unable to close " + client.getClass().getSimpleName() + ": ", e);
+      }
+    }
+  }
+
+  private static String key(Class<?> type, List<?> credentialFields) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+
+    digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+    for (Object field : credentialFields) {
+      // Length-prefixed, so that adjacent fields can't run into each other.
+      byte[] bytes = String.valueOf(field).getBytes(StandardCharsets.UTF_8);
+      digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+      digest.update(bytes);
+    }
+
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(String.format("%02x", b));
+    }
+
+    return result.toString();
+  }
+
+  private static class Entry {
+    final Object client;
+    volatile long lastUsed;
+
+    Entry(Object client, long lastUsed) {
+      this.client = client;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  @Data
+  public static class Stats {
+    int entries;
+    long hits;
+    long misses;
+    long evictions;
+  }
+}
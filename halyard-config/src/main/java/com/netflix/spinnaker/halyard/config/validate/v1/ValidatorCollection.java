@@ -20,10 +20,18 @@ import com.netflix.spinnaker.halyard.config.model.v1.node.Node;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Validator;
 import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemSetBuilder;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
-import java.lang.reflect.InvocationTargetException;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -31,13 +39,24 @@ import org.springframework.stereotype.Component;
 /**
  * This collects all validators that have been defined so far, and tries to apply all matching ones
  * to the input node.
+ *
+ * <p>Which validators apply to a given node class is resolved once per class, from the {@code
+ * validate} methods each validator declares, and cached; validating a node only invokes the
+ * validators that apply to it.
  */
 @Slf4j
 @Component
 public class ValidatorCollection {
+  private static final MethodType VALIDATE_TYPE =
+      MethodType.methodType(void.class, ConfigProblemSetBuilder.class, Node.class);
+
   @Autowired(required = false)
   private List<Validator> validators = new ArrayList<>();
 
+  private volatile ClassValue<List<ValidatorInvoker>> dispatchTable;
+
+  private final Map<String, ValidatorStats> validatorStats = new ConcurrentHashMap<>();
+
   /**
    * Runs every validator defined against the given node.
    *
@@ -47,49 +66,163 @@ public class ValidatorCollection {
    */
   public int runAllValidators(ConfigProblemSetBuilder psBuilder, Node node) {
     psBuilder.setNode(node);
-    int validatorRuns = 0;
+    List<ValidatorInvoker> invokers = getDispatchTable().get(node.getClass());
+    for (ValidatorInvoker invoker : invokers) {
+      invoker.invoke(psBuilder, node);
+    }
+
+    return invokers.size();
+  }
+
+  /** @return the names of every validator defined, in the order they are run. */
+  public List<String> getValidatorNames() {
+    List<String> result = new ArrayList<>();
+    for (Validator validator : validators) {
+      result.add(validator.getClass().getName());
+    }
+
+    return result;
+  }
+
+  /** @return invocation counts and timings of every validator run so far, by validator name. */
+  public Map<String, ValidatorStats> getValidatorStats() {
+    return Collections.unmodifiableMap(validatorStats);
+  }
+
+  private ClassValue<List<ValidatorInvoker>> getDispatchTable() {
+    ClassValue<List<ValidatorInvoker>> result = dispatchTable;
+    if (result == null) {
+      synchronized (this) {
+        result = dispatchTable;
+        if (result == null) {
+          result = buildDispatchTable();
+          dispatchTable = result;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private ClassValue<List<ValidatorInvoker>> buildDispatchTable() {
+    List<Map<Class<?>, Method>> validateMethods = new ArrayList<>();
     for (Validator validator : validators) {
-      validatorRuns += runMatchingValidators(psBuilder, validator, node, node.getClass()) ? 1 : 0;
+      validateMethods.add(findValidateMethods(validator.getClass()));
+    }
+
+    log.info("Built validator dispatch table for " + validators.size() + " validators");
+
+    return new ClassValue<List<ValidatorInvoker>>() {
+      @Override
+      protected List<ValidatorInvoker> computeValue(Class<?> nodeClass) {
+        List<ValidatorInvoker> result = new ArrayList<>();
+        for (int i = 0; i < validators.size(); i++) {
+          Method method = findMatchingMethod(validateMethods.get(i), nodeClass);
+          if (method != null) {
+            result.add(new ValidatorInvoker(validators.get(i), method));
+          }
+        }
+
+        return Collections.unmodifiableList(result);
+      }
+    };
+  }
+
+  /**
+   * @param validatorClass is the class of the validator.
+   * @return every validate method the validator defines, by the node class it accepts. The
+   *     compiler-generated bridge for {@link Validator#validate} is skipped, it accepts any node.
+   */
+  private static Map<Class<?>, Method> findValidateMethods(Class<?> validatorClass) {
+    Map<Class<?>, Method> result = new HashMap<>();
+    for (Method method : validatorClass.getMethods()) {
+      Class<?>[] parameters = method.getParameterTypes();
+      if (method.getName().equals("validate")
+          && !method.isBridge()
+          && parameters.length == 2
+          && parameters[0] == ConfigProblemSetBuilder.class
+          && Node.class.isAssignableFrom(parameters[1])) {
+        result.put(parameters[1], method);
+      }
     }
 
-    return validatorRuns;
+    return result;
   }
 
   /**
-   * Walk up the object hierarchy, running this validator whenever possible. The idea is, perhaps we
-   * were passed a Kubernetes account, and want to run both the standard Kubernetes account
-   * validator to see if the kubeconfig is valid, as well as the super-classes Account validator to
-   * see if the account name is valid.
+   * Walk up the object hierarchy, finding the most specific validate method that accepts the node.
+   * The idea is, perhaps we were passed a Kubernetes account, and a validator has a method for
+   * Kubernetes accounts specifically as well as for accounts in general; only the former is run.
    *
-   * @param psBuilder contains the list of problems encountered.
-   * @param validator is the validator to be run.
-   * @param node is the subject of validation.
-   * @param c is some super(inclusive) class of node.
-   * @return true iff the validator ran on the node (for logging purposes).
+   * @param validateMethods are the validate methods of the validator, by accepted node class.
+   * @param nodeClass is the class of the node being validated.
+   * @return the method to invoke, or null if the validator doesn't apply to this class.
    */
-  private boolean runMatchingValidators(
-      ConfigProblemSetBuilder psBuilder, Validator validator, Node node, Class c) {
-    if (c == Object.class) {
-      return false;
+  private static Method findMatchingMethod(
+      Map<Class<?>, Method> validateMethods, Class<?> nodeClass) {
+    Class<?> c = nodeClass;
+    while (c != null && c != Object.class) {
+      Method method = validateMethods.get(c);
+      if (method != null) {
+        return method;
+      }
+
+      c = c.getSuperclass();
     }
 
-    try {
-      Method m = validator.getClass().getMethod("validate", ConfigProblemSetBuilder.class, c);
-      DaemonTaskHandler.message(
-          "Validating " + node.getNodeName() + " with " + validator.getClass().getSimpleName());
-      m.invoke(validator, psBuilder, node);
-      return true;
-    } catch (InvocationTargetException | NoSuchMethodException e) {
-      // Do nothing, odds are most validators don't validate every class.
-    } catch (IllegalAccessException e) {
-      throw new RuntimeException(
-          "Failed to invoke validate() on \""
-              + validator.getClass().getSimpleName()
-              + "\" for node \""
-              + c.getSimpleName(),
-          e);
+    return null;
+  }
+
+  private class ValidatorInvoker {
+    final Validator validator;
+    final String validatorName;
+    final MethodHandle handle;
+    final ValidatorStats stats;
+
+    ValidatorInvoker(Validator validator, Method method) {
+      this.validator = validator;
+      this.validatorName = validator.getClass().getSimpleName();
+      this.stats = validatorStats.computeIfAbsent(validatorName, k -> new ValidatorStats());
+      try {
+        method.setAccessible(true);
+        this.handle =
+            MethodHandles.lookup()
+                .unreflect(method)
+                .bindTo(validator)
+                .asType(VALIDATE_TYPE);
+      } catch (IllegalAccessException e) {
+        throw new RuntimeException(
+            "Failed to resolve validate() on \""
+                + validatorName
+                + "\" for node \""
+                + method.getParameterTypes()[1].getSimpleName(),
+            e);
+      }
     }
 
-    return runMatchingValidators(psBuilder, validator, node, c.getSuperclass());
+    void invoke(ConfigProblemSetBuilder psBuilder, Node node) {
+      DaemonTaskHandler.message("Validating " + node.getNodeName() + " with " + validatorName);
+      long start = System.nanoTime();
+      try {
+        handle.invokeExact(psBuilder, node);
+      } catch (DaemonTaskInterrupted e) {
+        throw e;
+      } catch (Throwable e) {
+        // Validators report problems through the problem set builder, a validator failing outright
+        // has never failed validation as a whole.
+        log.warn("Validator " + validatorName + " failed on " + node.debugName() + ": ", e);
+      } finally {
+        long elapsedNanos = System.nanoTime() - start;
+        stats.record(elapsedNanos);
+        log.info(
+            "Validated "
+                + node.debugName()
+                + " with "
+                + validatorName
+                + " in "
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+                + " millis");
+      }
+    }
   }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.validate.v1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation count and timings of a single validator, collected across validation runs.
+ *
+ * <p>Timings are bucketed into a coarse histogram; the upper bounds are given by {@link
+ * #BUCKET_BOUNDS_MILLIS}, with a final bucket for everything slower.
+ */
+public class ValidatorStats {
+  public static final long[] BUCKET_BOUNDS_MILLIS = {10, 100, 1000, 10000};
+
+  private final LongAdder invocations = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+
+  void record(long elapsedNanos) {
+    invocations.increment();
+    totalNanos.add(elapsedNanos);
+    maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    int bucket = 0;
+    while (bucket < BUCKET_BOUNDS_MILLIS.length && elapsedMillis >= BUCKET_BOUNDS_MILLIS[bucket]) {
+      bucket++;
+    }
+
+    buckets.incrementAndGet(bucket);
+  }
+
+  public long getInvocations() {
+    return invocations.sum();
+  }
+
+  public long getTotalMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+  }
+
+  public long getMaxMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+  }
+
+  /** @return the number of invocations that fell into each bucket, fastest first. */
+  public long[] getHistogram() {
+    long[] result = new long[buckets.length()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = buckets.get(i);
+    }
+
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "ValidatorStats(invocations="
+        + getInvocations()
+        + ", totalMillis="
+        + getTotalMillis()
+        + ", maxMillis="
+        + getMaxMillis()
+        + ")";
+  }
+}
@@ -18,19 +18,33 @@ package com.netflix.spinnaker.halyard.config.validate.v1.providers.dockerRegistr
 
 import com.netflix.spinnaker.clouddriver.docker.registry.api.v2.client.DefaultDockerOkClientProvider;
 import com.netflix.spinnaker.clouddriver.docker.registry.api.v2.client.DockerRegistryCatalog;
+import com.netflix.spinnaker.clouddriver.docker.registry.api.v2.client.DockerRegistryClient;
 import com.netflix.spinnaker.clouddriver.docker.registry.security.DockerRegistryNamedAccountCredentials;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Validator;
 import com.netflix.spinnaker.halyard.config.model.v1.providers.dockerRegistry.DockerRegistryAccount;
 import com.netflix.spinnaker.halyard.config.model.v1.util.PropertyUtils;
 import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemBuilder;
 import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemSetBuilder;
+import com.netflix.spinnaker.halyard.config.validate.v1.ValidatorClientCache;
 import com.netflix.spinnaker.halyard.core.problem.v1.Problem.Severity;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -38,6 +52,14 @@ import org.springframework.stereotype.Component;
 public class DockerRegistryAccountValidator extends Validator<DockerRegistryAccount> {
   private static final String namePattern = "^[a-z0-9]+([-a-z0-9]*[a-z0-9])?$";
 
+  @Autowired ValidatorClientCache clientCache;
+
+  /** Number of repositories whose tags are fetched concurrently. */
+  @Value("${halyard.validation.docker-registry.parallelism:4}")
+  int parallelism;
+
+  private ExecutorService executor;
+
   @Override
   public void validate(ConfigProblemSetBuilder p, DockerRegistryAccount n) {
     if (!Pattern.matches(namePattern, n.getName())) {
@@ -122,24 +144,44 @@ public class DockerRegistryAccountValidator extends Validator<DockerRegistryAcco
     DockerRegistryNamedAccountCredentials credentials;
     try {
       Path passwordFilePath = validatingFileDecryptPath(n.getPasswordFile());
+      String decryptedPassword = secretSessionManager.decrypt(n.getPassword());
+      String passwordFilename = passwordFilePath != null ? passwordFilePath.toString() : null;
       credentials =
-          (new DockerRegistryNamedAccountCredentials.Builder())
-              .accountName(n.getName())
-              .address(n.getAddress())
-              .email(n.getEmail())
-              .password(secretSessionManager.decrypt(n.getPassword()))
-              .passwordCommand(n.getPasswordCommand())
-              .passwordFile(passwordFilePath != null ? passwordFilePath.toString() : null)
-              .dockerconfigFile(n.getDockerconfigFile())
-              .username(n.getUsername())
-              .clientTimeoutMillis(n.getClientTimeoutMillis())
-              .cacheThreads(n.getCacheThreads())
-              .paginateSize(n.getPaginateSize())
-              .sortTagsByDate(n.getSortTagsByDate())
-              .trackDigests(n.getTrackDigests())
-              .insecureRegistry(n.getInsecureRegistry())
-              .dockerOkClientProvider(new DefaultDockerOkClientProvider())
-              .build();
+          clientCache.get(
+              DockerRegistryNamedAccountCredentials.class,
+              Arrays.asList(
+                  n.getName(),
+                  n.getAddress(),
+                  n.getEmail(),
+                  decryptedPassword,
+                  n.getPasswordCommand(),
+                  passwordFilename,
+                  n.getDockerconfigFile(),
+                  n.getUsername(),
+                  n.getClientTimeoutMillis(),
+                  n.getCacheThreads(),
+                  n.getPaginateSize(),
+                  n.getSortTagsByDate(),
+                  n.getTrackDigests(),
+                  n.getInsecureRegistry()),
+              () ->
+                  (new DockerRegistryNamedAccountCredentials.Builder())
+                      .accountName(n.getName())
+                      .address(n.getAddress())
+                      .email(n.getEmail())
+                      .password(decryptedPassword)
+                      .passwordCommand(n.getPasswordCommand())
+                      .passwordFile(passwordFilename)
+                      .dockerconfigFile(n.getDockerconfigFile())
+                      .username(n.getUsername())
+                      .clientTimeoutMillis(n.getClientTimeoutMillis())
+                      .cacheThreads(n.getCacheThreads())
+                      .paginateSize(n.getPaginateSize())
+                      .sortTagsByDate(n.getSortTagsByDate())
+                      .trackDigests(n.getTrackDigests())
+                      .insecureRegistry(n.getInsecureRegistry())
+                      .dockerOkClientProvider(new DefaultDockerOkClientProvider())
+                      .build());
     } catch (Exception e) {
       p.addProblem(
           Severity.ERROR,
@@ -182,25 +224,38 @@ public class DockerRegistryAccountValidator extends Validator<DockerRegistryAcco
                 "Unable to connect the registries catalog endpoint: " + e.getMessage() + ".");
       }
     } else {
-      // effectively final
-      int[] tagCount = new int[1];
-      n.getRepositories()
-          .forEach(
-              r -> {
-                try {
-                  tagCount[0] +=
-                      credentials.getCredentials().getClient().getTags(r).getTags().size();
-                } catch (Exception e) {
-                  p.addProblem(
-                          Severity.ERROR,
-                          "Unable to fetch tags from the docker repository: "
-                              + r
-                              + ", "
-                              + e.getMessage())
-                      .setRemediation("Can the provided user access this repository?");
-                }
-              });
-      if (tagCount[0] == 0) {
+      DockerRegistryClient client = credentials.getCredentials().getClient();
+      List<Future<Integer>> tagCounts = new ArrayList<>();
+      for (String repository : n.getRepositories()) {
+        tagCounts.add(
+            getExecutor()
+                .submit(
+                    DaemonTaskHandler.withCurrentTask(
+                        () -> client.getTags(repository).getTags().size())));
+      }
+
+      // Problems are added here, in the order the repositories are listed.
+      int tagCount = 0;
+      try {
+        for (int i = 0; i < tagCounts.size(); i++) {
+          try {
+            tagCount += tagCounts.get(i).get();
+          } catch (ExecutionException e) {
+            p.addProblem(
+                    Severity.ERROR,
+                    "Unable to fetch tags from the docker repository: "
+                        + n.getRepositories().get(i)
+                        + ", "
+                        + e.getCause().getMessage())
+                .setRemediation("Can the provided user access this repository?");
+          }
+        }
+      } catch (InterruptedException e) {
+        tagCounts.forEach(f -> f.cancel(true));
+        throw new DaemonTaskInterrupted("Interrupted while fetching docker tags", e);
+      }
+
+      if (tagCount == 0) {
         p.addProblem(
                 Severity.WARNING,
                 "None of your supplied repositories contain any tags. Spinnaker will not be able to deploy any docker images.")
@@ -227,4 +282,20 @@ public class DockerRegistryAccountValidator extends Validator<DockerRegistryAcco
       }
     }
   }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      AtomicInteger threadCount = new AtomicInteger();
+      executor =
+          Executors.newFixedThreadPool(
+              Math.max(parallelism, 1),
+              r -> {
+                Thread thread = new Thread(r, "docker-tags-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+
+    return executor;
+  }
 }
@@ -21,10 +21,12 @@ import com.netflix.spinnaker.clouddriver.google.security.GoogleNamedAccountCrede
 import com.netflix.spinnaker.halyard.config.model.v1.node.Validator;
 import com.netflix.spinnaker.halyard.config.model.v1.providers.google.GoogleAccount;
 import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemSetBuilder;
+import com.netflix.spinnaker.halyard.config.validate.v1.ValidatorClientCache;
 import com.netflix.spinnaker.halyard.core.problem.v1.Problem.Severity;
 import com.netflix.spinnaker.halyard.core.secrets.v1.SecretSessionManager;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -37,12 +39,16 @@ public class GoogleAccountValidator extends Validator<GoogleAccount> {
 
   private final String halyardVersion;
 
+  private final ValidatorClientCache clientCache;
+
   public GoogleAccountValidator(
       List<GoogleNamedAccountCredentials> credentialsList,
       String halyardVersion,
+      ValidatorClientCache clientCache,
       SecretSessionManager secretSessionManager) {
     this.credentialsList = credentialsList;
     this.halyardVersion = halyardVersion;
+    this.clientCache = clientCache;
     this.secretSessionManager = secretSessionManager;
   }
 
@@ -53,8 +59,7 @@ public class GoogleAccountValidator extends Validator<GoogleAccount> {
 
     String jsonKey = getJsonKey(p, n);
 
-    GoogleNamedAccountCredentials credentials =
-        n.getNamedAccountCredentials(halyardVersion, jsonKey, p);
+    GoogleNamedAccountCredentials credentials = getNamedAccountCredentials(p, n, jsonKey);
     if (credentials == null) {
       return;
     } else {
@@ -78,6 +83,23 @@ public class GoogleAccountValidator extends Validator<GoogleAccount> {
     validateUserDataFile(p, n);
   }
 
+  /**
+   * Only accounts with a key and a project are cached: the warnings about the others are added
+   * whenever their credentials are built, so they must be built on every validation.
+   */
+  private GoogleNamedAccountCredentials getNamedAccountCredentials(
+      ConfigProblemSetBuilder p, GoogleAccount n, String jsonKey) {
+    if (StringUtils.isEmpty(jsonKey) || StringUtils.isEmpty(n.getProject())) {
+      return n.getNamedAccountCredentials(halyardVersion, jsonKey, p);
+    }
+
+    return clientCache.get(
+        GoogleNamedAccountCredentials.class,
+        Arrays.asList(
+            n.getProject(), jsonKey, n.isAlphaListed(), n.getImageProjects(), halyardVersion),
+        () -> n.getNamedAccountCredentials(halyardVersion, jsonKey, p));
+  }
+
   private String getJsonKey(ConfigProblemSetBuilder p, GoogleAccount n) {
     if (!StringUtils.isEmpty(n.getJsonPath())) {
       return validatingFileDecrypt(p, n.getJsonPath());
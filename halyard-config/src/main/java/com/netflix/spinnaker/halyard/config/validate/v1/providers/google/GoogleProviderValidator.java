@@ -20,6 +20,7 @@ import com.netflix.spinnaker.clouddriver.google.security.GoogleNamedAccountCrede
 import com.netflix.spinnaker.halyard.config.model.v1.node.Validator;
 import com.netflix.spinnaker.halyard.config.model.v1.providers.google.GoogleProvider;
 import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemSetBuilder;
+import com.netflix.spinnaker.halyard.config.validate.v1.ValidatorClientCache;
 import java.util.ArrayList;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,12 +30,15 @@ import org.springframework.stereotype.Component;
 public class GoogleProviderValidator extends Validator<GoogleProvider> {
   @Autowired private String halyardVersion;
 
+  @Autowired private ValidatorClientCache clientCache;
+
   @Override
   public void validate(ConfigProblemSetBuilder p, GoogleProvider n) {
     List<GoogleNamedAccountCredentials> credentialsList = new ArrayList<>();
 
     GoogleAccountValidator googleAccountValidator =
-        new GoogleAccountValidator(credentialsList, halyardVersion, secretSessionManager);
+        new GoogleAccountValidator(
+            credentialsList, halyardVersion, clientCache, secretSessionManager);
 
     n.getAccounts().forEach(googleAccount -> googleAccountValidator.validate(p, googleAccount));
 
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.config.v1
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.TextNode
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+import java.util.function.Function
+
+class HalconfigCacheSpec extends Specification {
+  HalconfigCache cache = new HalconfigCache()
+  Path config
+
+  void setup() {
+    config = Files.createTempFile("halconfig", ".yml")
+  }
+
+  void cleanup() {
+    Files.deleteIfExists(config)
+  }
+
+  private void write(String contents, long lastModified) {
+    config.toFile().text = contents
+    Files.setLastModifiedTime(config, FileTime.fromMillis(lastModified))
+  }
+
+  private static Function<byte[], JsonNode> countingParser(List<String> parsed) {
+    return { byte[] contents ->
+      String text = new String(contents)
+      parsed.add(text)
+      return new TextNode(text)
+    } as Function<byte[], JsonNode>
+  }
+
+  void "unchanged files are only parsed once"() {
+    setup:
+    List<String> parsed = []
+    write("a: b", 1000L)
+
+    when:
+    def first = cache.get(config, countingParser(parsed))
+    def second = cache.get(config, countingParser(parsed))
+
+    then:
+    parsed == ["a: b"]
+    first.is(second)
+    cache.stats.hits == 1
+    cache.stats.misses == 1
+  }
+
+  void "changed files are re-parsed"() {
+    setup:
+    List<String> parsed = []
+    write("a: b", 1000L)
+
+    when:
+    cache.get(config, countingParser(parsed))
+    write("a: c", 2000L)
+    def result = cache.get(config, countingParser(parsed))
+
+    then:
+    parsed == ["a: b", "a: c"]
+    result.textValue() == "a: c"
+  }
+
+  void "touched but unchanged files are not re-parsed"() {
+    setup:
+    List<String> parsed = []
+    write("a: b", 1000L)
+
+    when:
+    cache.get(config, countingParser(parsed))
+    write("a: b", 2000L)
+    cache.get(config, countingParser(parsed))
+
+    then:
+    parsed == ["a: b"]
+  }
+
+  void "invalidated files are re-parsed"() {
+    setup:
+    List<String> parsed = []
+    write("a: b", 1000L)
+
+    when:
+    cache.get(config, countingParser(parsed))
+    cache.invalidate(config)
+    cache.get(config, countingParser(parsed))
+
+    then:
+    parsed == ["a: b", "a: b"]
+  }
+}
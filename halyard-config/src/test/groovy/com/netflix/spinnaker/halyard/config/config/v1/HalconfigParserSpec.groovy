@@ -16,7 +16,10 @@
 
 package com.netflix.spinnaker.halyard.config.config.v1
 
+import com.netflix.spinnaker.halyard.config.model.v1.node.DeploymentConfiguration
 import com.netflix.spinnaker.halyard.config.model.v1.node.Halconfig
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler
 import org.springframework.context.ApplicationContext
 import org.yaml.snakeyaml.Yaml
 import org.yaml.snakeyaml.constructor.SafeConstructor
@@ -24,6 +27,7 @@ import spock.lang.Specification
 import spock.lang.Unroll
 
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.Callable
 
 class HalconfigParserSpec extends Specification {
   String HALYARD_VERSION = "0.1.0"
@@ -162,4 +166,51 @@ deploymentConfigurations:
     // Uncomment the below to implement LDAP. Then fill in the rest of the LDAP properties, one per line.
 //    "ldap"        | "enabled"    | true
   }
+
+  void "read-only reads share the task's halconfig without re-parentifying it"() {
+    setup:
+    parser.halconfigDirectoryStructure = new HalconfigDirectoryStructure()
+    DaemonTaskHandler.setTask(new DaemonTask("Validate", 0))
+    Halconfig halconfig = new Halconfig()
+    DaemonTaskHandler.setContext(halconfig)
+    parser.getHalconfig()
+    def added = new DeploymentConfiguration().setName("added")
+    halconfig.deploymentConfigurations.add(added)
+
+    when:
+    def read = HalconfigParser.readOnly({ -> parser.getHalconfig() } as Callable<Halconfig>).call()
+
+    then:
+    read.is(halconfig)
+    added.parent == null
+
+    when:
+    parser.getHalconfig()
+
+    then:
+    added.parent.is(halconfig)
+
+    cleanup:
+    DaemonTaskHandler.setTask(null)
+  }
+
+  void "the node index is only rebuilt once the tree changes"() {
+    setup:
+    Halconfig halconfig = new Halconfig()
+    halconfig.parentify()
+    def index = halconfig.getNodeIndex()
+
+    when:
+    halconfig.parentify()
+
+    then:
+    halconfig.getNodeIndex().is(index)
+
+    when:
+    halconfig.deploymentConfigurations.add(new DeploymentConfiguration().setName("added"))
+    halconfig.parentify()
+
+    then:
+    !halconfig.getNodeIndex().is(index)
+  }
 }
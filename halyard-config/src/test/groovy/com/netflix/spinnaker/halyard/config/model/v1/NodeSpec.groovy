@@ -103,6 +103,24 @@ class NodeSpec extends Specification {
     }
   }
 
+  void "reflective iterator collects every child node field"() {
+    setup:
+    def node = new TestNode()
+    node.node2 = null
+
+    when:
+    def names = []
+    def iterator = node.getChildren()
+    def child = iterator.getNext()
+    while (child != null) {
+      names.add(child.nodeName)
+      child = iterator.getNext()
+    }
+
+    then:
+    names.sort() == ["n1", "n3"]
+  }
+
   void "node correctly provides list iterator"() {
     setup:
     def node = new ChildTestNode()
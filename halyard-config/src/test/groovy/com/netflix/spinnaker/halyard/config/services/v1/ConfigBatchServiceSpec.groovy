@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.services.v1
+
+import com.fasterxml.jackson.databind.JsonNode
+import com.netflix.spinnaker.halyard.config.config.v1.HalconfigDirectoryStructure
+import com.netflix.spinnaker.halyard.config.config.v1.HalconfigParser
+import com.netflix.spinnaker.halyard.config.config.v1.StrictObjectMapper
+import com.netflix.spinnaker.halyard.config.model.v1.node.Account
+import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemBuilder
+import com.netflix.spinnaker.halyard.core.ConfigEdit
+import com.netflix.spinnaker.halyard.core.DaemonResponse
+import com.netflix.spinnaker.halyard.core.error.v1.HalException
+import com.netflix.spinnaker.halyard.core.problem.v1.Problem
+import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler
+import spock.lang.Specification
+
+class ConfigBatchServiceSpec extends Specification {
+  String DEPLOYMENT = "default"
+  String PROVIDER = "kubernetes"
+  String ACCOUNT_NAME = "my-account"
+  HalconfigParserMocker mocker = new HalconfigParserMocker()
+  ConfigBatchService service = new ConfigBatchService(objectMapper: new StrictObjectMapper())
+
+  JsonNode tree() {
+    return new StrictObjectMapper().readTree("""
+{
+  "deploymentConfigurations": [{
+    "name": "$DEPLOYMENT",
+    "providers": {"$PROVIDER": {"enabled": false, "accounts": [{"name": "$ACCOUNT_NAME"}]}}
+  }]
+}
+""")
+  }
+
+  ConfigEdit edit(ConfigEdit.Operation op, String path, Object value = null) {
+    return new ConfigEdit(op: op, path: path, value: value)
+  }
+
+  void "edits address list elements by name"() {
+    setup:
+    def root = tree()
+    def provider = "deploymentConfigurations/$DEPLOYMENT/providers/$PROVIDER"
+
+    when:
+    service.applyEdit(root, edit(ConfigEdit.Operation.SET, "$provider/enabled", true))
+    service.applyEdit(root, edit(ConfigEdit.Operation.ADD, "$provider/accounts", [name: "other"]))
+    service.applyEdit(root, edit(ConfigEdit.Operation.REMOVE, "$provider/accounts/$ACCOUNT_NAME"))
+
+    then:
+    def kubernetes = root.get("deploymentConfigurations").get(0).get("providers").get(PROVIDER)
+    kubernetes.get("enabled").booleanValue()
+    kubernetes.get("accounts").size() == 1
+    kubernetes.get("accounts").get(0).get("name").textValue() == "other"
+  }
+
+  void "set creates missing parents"() {
+    setup:
+    def root = tree()
+
+    when:
+    service.applyEdit(
+        root, edit(ConfigEdit.Operation.SET, "deploymentConfigurations/0/features/artifacts", true))
+
+    then:
+    root.get("deploymentConfigurations").get(0).get("features").get("artifacts").booleanValue()
+  }
+
+  void "adding a duplicate name fails"() {
+    setup:
+    def root = tree()
+
+    when:
+    service.applyEdit(
+        root,
+        edit(
+            ConfigEdit.Operation.ADD,
+            "deploymentConfigurations/$DEPLOYMENT/providers/$PROVIDER/accounts",
+            [name: ACCOUNT_NAME]))
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  void "removing a missing element fails"() {
+    setup:
+    def root = tree()
+
+    when:
+    service.applyEdit(root, edit(ConfigEdit.Operation.REMOVE, "deploymentConfigurations/missing"))
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  void "locates the deepest node touched by an edit"() {
+    setup:
+    String config = """
+halyardVersion: 1
+currentDeployment: $DEPLOYMENT
+deploymentConfigurations:
+- name: $DEPLOYMENT
+  version: 1
+  providers:
+    $PROVIDER:
+      enabled: true
+      accounts:
+        - name: $ACCOUNT_NAME
+"""
+    def halconfig = mocker.mockHalconfigParser(config).getHalconfig()
+
+    when:
+    def path = "deploymentConfigurations/$DEPLOYMENT/providers/$PROVIDER/accounts/$ACCOUNT_NAME/context"
+    def result = ConfigBatchService.locate(halconfig, ConfigBatchService.segments(path))
+
+    then:
+    result instanceof Account
+    result.name == ACCOUNT_NAME
+  }
+
+  void "a batch that fails validation is reverted and not saved"() {
+    setup:
+    String config = """
+halyardVersion: 1
+currentDeployment: $DEPLOYMENT
+deploymentConfigurations:
+- name: $DEPLOYMENT
+  version: 1
+  providers:
+    $PROVIDER:
+      enabled: true
+      accounts:
+        - name: $ACCOUNT_NAME
+"""
+    def halconfig = mocker.mockHalconfigParser(config).getHalconfig()
+    HalconfigParser parser = Mock(HalconfigParser)
+    parser.getHalconfig() >> halconfig
+    ValidateService validateService = Mock(ValidateService)
+    ConfigBatchService batchService = new ConfigBatchService(
+        halconfigParser: parser,
+        halconfigDirectoryStructure: Mock(HalconfigDirectoryStructure),
+        objectMapper: new StrictObjectMapper(),
+        validateService: validateService)
+    def edits = [edit(
+        ConfigEdit.Operation.SET,
+        "deploymentConfigurations/$DEPLOYMENT/providers/$PROVIDER/enabled",
+        false)]
+
+    def touched = []
+    DaemonResponse.UpdateRequestBuilder builder = new DaemonResponse.UpdateRequestBuilder()
+    builder.setUpdate({ touched.addAll(batchService.applyEdits(edits)) })
+    builder.setRevert(parser.&undoChanges)
+    builder.setSave(parser.&saveConfig)
+    builder.setValidate({ batchService.validateEdits(touched) })
+    DaemonTaskHandler.setTask(new DaemonTask("Apply 1 edits", 0))
+
+    when:
+    builder.build()
+
+    then:
+    1 * validateService.validateSubtrees(_) >> new ProblemSet(
+        new ConfigProblemBuilder(Problem.Severity.ERROR, "The account is invalid").build())
+    1 * parser.undoChanges()
+    0 * parser.saveConfig()
+    thrown(HalException)
+    touched.size() == 1
+
+    cleanup:
+    DaemonTaskHandler.setTask(null)
+  }
+}
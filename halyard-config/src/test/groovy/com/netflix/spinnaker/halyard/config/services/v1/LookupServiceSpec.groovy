@@ -19,6 +19,7 @@ package com.netflix.spinnaker.halyard.config.services.v1
 import com.netflix.spinnaker.halyard.config.model.v1.node.Account
 import com.netflix.spinnaker.halyard.config.model.v1.node.NodeFilter
 import com.netflix.spinnaker.halyard.config.model.v1.node.Provider
+import com.netflix.spinnaker.halyard.config.model.v1.providers.kubernetes.KubernetesAccount
 import spock.lang.Specification
 
 class LookupServiceSpec extends Specification {
@@ -420,4 +421,48 @@ deploymentConfigurations:
     result[0].nodeName == AZURE_ACCOUNT_NAME
     result.size() == 1
   }
+
+  def "finds accounts edited since the config was indexed"() {
+    setup:
+    String config = """
+halyardVersion: 1
+currentDeployment: $DEPLOYMENT_NAME
+deploymentConfigurations:
+- name: $DEPLOYMENT_NAME
+  version: 1
+  providers:
+    $KUBERNETES_PROVIDER:
+      enabled: true
+      accounts:
+        - name: $KUBERNETES_ACCOUNT_NAME
+"""
+    def lookupService = new LookupService()
+    lookupService.parser = mocker.mockHalconfigParser(config)
+    def provider = lookupService.getMatchingNodesOfType(
+        new NodeFilter().setDeployment(DEPLOYMENT_NAME).setProvider(KUBERNETES_PROVIDER),
+        Provider.class)[0]
+    def renamed = new KubernetesAccount()
+    renamed.name = "$KUBERNETES_ACCOUNT_NAME-renamed"
+    def added = new KubernetesAccount()
+    added.name = "$KUBERNETES_ACCOUNT_NAME-added"
+
+    when:
+    provider.accounts.set(0, renamed)
+    provider.accounts.add(added)
+    def old = lookupService.getMatchingNodesOfType(accountFilter(KUBERNETES_ACCOUNT_NAME), Account.class)
+    def byNewName = lookupService.getMatchingNodesOfType(accountFilter(renamed.name), Account.class)
+    def byAddedName = lookupService.getMatchingNodesOfType(accountFilter(added.name), Account.class)
+
+    then:
+    old.isEmpty()
+    byNewName == [renamed]
+    byAddedName == [added]
+  }
+
+  private static NodeFilter accountFilter(String accountName) {
+    return new NodeFilter()
+        .setDeployment(DEPLOYMENT_NAME)
+        .setProvider(KUBERNETES_PROVIDER)
+        .setAccount(accountName)
+  }
 }
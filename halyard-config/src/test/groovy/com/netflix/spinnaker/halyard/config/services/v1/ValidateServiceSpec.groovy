@@ -16,6 +16,7 @@
 
 package com.netflix.spinnaker.halyard.config.services.v1
 
+import com.netflix.spinnaker.halyard.config.config.v1.StrictObjectMapper
 import com.netflix.spinnaker.halyard.config.model.v1.node.Account
 import com.netflix.spinnaker.halyard.config.model.v1.node.NodeFilter
 import com.netflix.spinnaker.halyard.config.model.v1.node.Validator
@@ -80,6 +81,103 @@ deploymentConfigurations:
     validator.validatedAccounts.contains(DOCKER_REGISTRY_ACCOUNT_NAME)
     validator.validatedAccounts.contains(GOOGLE_ACCOUNT_NAME)
     validator.validatedAccounts.contains(AZURE_ACCOUNT_NAME)
+    validateService.validatorCollection.validatorStats["TrackingAccountValidator"].invocations == 4
+  }
+
+  def "cached validation only re-validates edited accounts"() {
+    setup:
+    String config = """
+halyardVersion: 1
+currentDeployment: $DEPLOYMENT_NAME
+deploymentConfigurations:
+- name: $DEPLOYMENT_NAME
+  version: 1
+  providers:
+    $KUBERNETES_PROVIDER:
+      enabled: true
+      accounts:
+        - name: $KUBERNETES_ACCOUNT_NAME
+    $GOOGLE_PROVIDER:
+      enabled: true
+      accounts:
+        - name: $GOOGLE_ACCOUNT_NAME
+"""
+    def validateService = new ValidateService()
+    validateService.parser = mocker.mockHalconfigParser(config)
+    validateService.objectMapper = new StrictObjectMapper()
+    validateService.cacheTtlSeconds = 60
+    def filter = new NodeFilter()
+        .setDeployment(DEPLOYMENT_NAME)
+        .withAnyProvider()
+        .withAnyAccount()
+    def validator = new TrackingAccountValidator()
+    validateService.validatorCollection = new ValidatorCollection()
+    validateService.validatorCollection.validators = [validator]
+    def validate = { ValidateService.withCachedResults { validateService.validateMatchingFilter(filter) } }
+
+    when:
+    validate()
+    validate()
+
+    then:
+    validator.validatedAccounts.sort() == [GOOGLE_ACCOUNT_NAME, KUBERNETES_ACCOUNT_NAME]
+
+    when:
+    def halconfig = validateService.parser.getHalconfig()
+    halconfig.deploymentConfigurations[0].providers.google.accounts[0].environment = "prod"
+    validate()
+
+    then:
+    validator.validatedAccounts.sort() == [GOOGLE_ACCOUNT_NAME, GOOGLE_ACCOUNT_NAME, KUBERNETES_ACCOUNT_NAME]
+  }
+
+  def "nodes queued behind hung validators time out too"() {
+    setup:
+    String config = """
+halyardVersion: 1
+currentDeployment: $DEPLOYMENT_NAME
+deploymentConfigurations:
+- name: $DEPLOYMENT_NAME
+  version: 1
+  providers:
+    $KUBERNETES_PROVIDER:
+      enabled: true
+      accounts:
+        - name: $KUBERNETES_ACCOUNT_NAME
+    $DOCKER_REGISTRY_PROVIDER:
+      enabled: true
+      accounts:
+        - name: $DOCKER_REGISTRY_ACCOUNT_NAME
+    $GOOGLE_PROVIDER:
+      enabled: true
+      accounts:
+        - name: $GOOGLE_ACCOUNT_NAME
+"""
+    def validateService = new ValidateService()
+    validateService.parser = mocker.mockHalconfigParser(config)
+    validateService.parallelism = 2
+    validateService.nodeTimeoutSeconds = 1
+    def filter = new NodeFilter()
+        .setDeployment(DEPLOYMENT_NAME)
+        .withAnyProvider()
+        .withAnyAccount()
+    def validator = new HangingAccountValidator()
+    validateService.validatorCollection = new ValidatorCollection()
+    validateService.validatorCollection.validators = [validator]
+
+    when:
+    def problems = validateService.validateMatchingFilter(filter).problems
+
+    then:
+    problems.size() == 3
+    problems.every { it.message.contains("timed out") }
+  }
+
+  class HangingAccountValidator extends Validator<Account> {
+    @Override
+    void validate(ConfigProblemSetBuilder p, Account n) {
+      Thread.sleep(60000)
+    }
   }
 
   class TrackingAccountValidator extends Validator<Account> {
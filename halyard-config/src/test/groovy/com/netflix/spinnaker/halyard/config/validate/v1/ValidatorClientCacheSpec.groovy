@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.config.validate.v1
+
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+class ValidatorClientCacheSpec extends Specification {
+  ValidatorClientCache cache = new ValidatorClientCache(idleSeconds: 600, maxEntries: 2)
+
+  private static Supplier<String> counting(List<String> built, String client) {
+    return { ->
+      built.add(client)
+      return client
+    } as Supplier<String>
+  }
+
+  void "clients built from the same fields are reused"() {
+    setup:
+    List<String> built = []
+
+    when:
+    def first = cache.get(String, ["registry", "password"], counting(built, "a"))
+    def second = cache.get(String, ["registry", "password"], counting(built, "b"))
+
+    then:
+    built == ["a"]
+    first == "a"
+    second == "a"
+    cache.stats.hits == 1
+    cache.stats.misses == 1
+  }
+
+  void "changing a credential field builds a new client"() {
+    setup:
+    List<String> built = []
+
+    when:
+    cache.get(String, ["registry", "password"], counting(built, "a"))
+    def result = cache.get(String, ["registry", "changed"], counting(built, "b"))
+
+    then:
+    built == ["a", "b"]
+    result == "b"
+  }
+
+  void "null clients aren't cached"() {
+    setup:
+    List<String> built = []
+
+    when:
+    cache.get(String, ["registry"], counting(built, null))
+    cache.get(String, ["registry"], counting(built, null))
+
+    then:
+    built == [null, null]
+    cache.stats.entries == 0
+  }
+
+  void "idle clients are evicted and closed"() {
+    setup:
+    cache.idleSeconds = 0
+    AutoCloseable client = Mock(AutoCloseable)
+
+    when:
+    cache.get(AutoCloseable, ["registry"], { -> client } as Supplier<AutoCloseable>)
+    cache.get(String, ["other"], counting([], "b"))
+
+    then:
+    1 * client.close()
+    cache.stats.evictions == 1
+  }
+
+  void "the least recently used client is evicted once the cache is full"() {
+    setup:
+    List<String> built = []
+
+    when:
+    cache.get(String, ["a"], counting(built, "a"))
+    cache.get(String, ["b"], counting(built, "b"))
+    cache.get(String, ["c"], counting(built, "c"))
+
+    then:
+    cache.stats.entries == 2
+    cache.stats.evictions == 1
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * A single edit to the halconfig, applied as part of a batch of edits.
+ *
+ * <p>The path is a "/"-separated list of field names from the root of the halconfig, e.g.
+ * "deploymentConfigurations/default/providers/kubernetes/accounts/my-account". Elements of a list
+ * are addressed either by their index or by their "name".
+ */
+@Data
+public class ConfigEdit {
+  Operation op;
+  String path;
+  Object value;
+
+  public enum Operation {
+    /** Replace the value at the path, creating any missing parent fields. */
+    @JsonProperty("set")
+    SET,
+
+    /** Append the value to the list at the path. */
+    @JsonProperty("add")
+    ADD,
+
+    /** Remove the value at the path. */
+    @JsonProperty("remove")
+    REMOVE
+  }
+}
@@ -22,6 +22,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 // TODO(lwander) unify with original job executor:
 // https://github.com/spinnaker/rosco/blob/bf718907888a7d95a0da6e21ec0e00c0709c4e19/rosco-core/src/main/groovy/com/netflix/spinnaker/rosco/jobs/JobExecutor.groovy
@@ -59,6 +61,24 @@ public abstract class JobExecutor {
     return startJob(jobRequest, System.getenv(), stdIn, stdOut, stdErr);
   }
 
+  /**
+   * Starts a job, without waiting for it to complete.
+   *
+   * @param jobRequest is the job to run.
+   * @return a future completed with the job's final status, including all of its output.
+   */
+  public CompletableFuture<JobStatus> submit(JobRequest jobRequest) {
+    String jobId = startJob(jobRequest);
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return backoffWait(jobId);
+          } catch (InterruptedException e) {
+            throw new CompletionException(e);
+          }
+        });
+  }
+
   public JobStatus backoffWait(String jobId) throws InterruptedException {
     return backoffWait(jobId, 100, 1000);
   }
@@ -21,23 +21,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.exec.*;
-import rx.Scheduler;
-import rx.functions.Action0;
-import rx.schedulers.Schedulers;
 
 @Slf4j
 public class JobExecutorLocal extends JobExecutor {
-  private Scheduler scheduler = Schedulers.computation();
-
   private Map<String, ExecutionHandler> jobIdToHandlerMap = new ConcurrentHashMap<>();
 
-  private Set<String> pendingJobSet = new ConcurrentSkipListSet<>();
-
   @Override
   public String startJob(
       JobRequest jobRequest,
@@ -57,97 +51,108 @@ public class JobExecutorLocal extends JobExecutor {
 
     String jobId = UUID.randomUUID().toString();
 
-    pendingJobSet.add(jobId);
-
-    log.info("Scheduling job " + jobRequest.getTokenizedCommand() + " with id " + jobId);
-
-    scheduler
-        .createWorker()
-        .schedule(
-            new Action0() {
-              @Override
-              public void call() {
-                PumpStreamHandler pumpStreamHandler = new PumpStreamHandler(stdOut, stdErr, stdIn);
-                CommandLine commandLine;
-
-                log.info("Executing " + jobId + "with tokenized command: " + tokenizedCommand);
-
-                // Grab the first element as the command.
-                commandLine = new CommandLine(jobRequest.getTokenizedCommand().get(0));
-
-                // Treat the rest as arguments.
-                String[] arguments =
-                    Arrays.copyOfRange(
-                        tokenizedCommand.toArray(new String[0]), 1, tokenizedCommand.size());
-
-                commandLine.addArguments(arguments, false);
-
-                DefaultExecuteResultHandler resultHandler = new DefaultExecuteResultHandler();
-                ExecuteWatchdog watchdog =
-                    new ExecuteWatchdog(timeoutMillis) {
-                      @Override
-                      public void timeoutOccured(Watchdog w) {
-                        // If a watchdog is passed in, this was an actual time-out. Otherwise, it is
-                        // likely
-                        // the result of calling watchdog.destroyProcess().
-                        if (w != null) {
-                          log.warn("Job " + jobId + " timed-out after " + timeoutMillis + "ms.");
-
-                          cancelJob(jobId);
-                        }
-
-                        super.timeoutOccured(w);
-                      }
-                    };
-
-                Executor executor = new DefaultExecutor();
-                executor.setStreamHandler(pumpStreamHandler);
-                executor.setWatchdog(watchdog);
-                try {
-                  executor.execute(commandLine, env, resultHandler);
-                } catch (IOException e) {
-                  throw new RuntimeException("Execution of " + jobId + " failed ", e);
-                }
-
-                // Give the job some time to spin up.
-                try {
-                  Thread.sleep(500);
-                } catch (InterruptedException ignored) {
-                }
-
-                jobIdToHandlerMap.put(
-                    jobId,
-                    new ExecutionHandler()
-                        .setResultHandler(resultHandler)
-                        .setWatchdog(watchdog)
-                        .setStdOut(stdOut)
-                        .setStdErr(stdErr));
-
-                if (pendingJobSet.contains(jobId)) {
-                  pendingJobSet.remove(jobId);
-                } else {
-                  // If the job was removed from the set of pending jobs by someone else, its
-                  // deletion was requested
-                  jobIdToHandlerMap.remove(jobId);
-                  watchdog.destroyProcess();
-                }
-              }
-            });
+    log.info("Executing " + jobId + " with tokenized command: " + tokenizedCommand);
+
+    PumpStreamHandler pumpStreamHandler = new PumpStreamHandler(stdOut, stdErr, stdIn);
+
+    // Grab the first element as the command.
+    CommandLine commandLine = new CommandLine(tokenizedCommand.get(0));
+
+    // Treat the rest as arguments.
+    String[] arguments =
+        Arrays.copyOfRange(tokenizedCommand.toArray(new String[0]), 1, tokenizedCommand.size());
+
+    commandLine.addArguments(arguments, false);
+
+    CompletionHandler resultHandler = new CompletionHandler(jobId, stdOut, stdErr);
+    ExecuteWatchdog watchdog =
+        new ExecuteWatchdog(timeoutMillis) {
+          @Override
+          public void timeoutOccured(Watchdog w) {
+            // If a watchdog is passed in, this was an actual time-out. Otherwise, it is likely the
+            // result of calling watchdog.destroyProcess().
+            if (w != null) {
+              log.warn("Job " + jobId + " timed-out after " + timeoutMillis + "ms.");
+
+              cancelJob(jobId);
+            }
+
+            super.timeoutOccured(w);
+          }
+        };
+
+    jobIdToHandlerMap.put(
+        jobId,
+        new ExecutionHandler()
+            .setResultHandler(resultHandler)
+            .setWatchdog(watchdog)
+            .setStdOut(stdOut)
+            .setStdErr(stdErr));
+
+    // The process is started and waited on by the executor's own thread, which notifies the
+    // result handler once the process exits and its output has been fully read.
+    Executor executor = new DefaultExecutor();
+    executor.setStreamHandler(pumpStreamHandler);
+    executor.setWatchdog(watchdog);
+    try {
+      executor.execute(commandLine, env, resultHandler);
+    } catch (IOException e) {
+      jobIdToHandlerMap.remove(jobId);
+      throw new RuntimeException("Execution of " + jobId + " failed ", e);
+    }
 
     return jobId;
   }
 
   @Data
   private class ExecutionHandler {
-    DefaultExecuteResultHandler resultHandler;
+    CompletionHandler resultHandler;
     ExecuteWatchdog watchdog;
     ByteArrayOutputStream stdOut;
     ByteArrayOutputStream stdErr;
   }
 
+  /** Completes a future with the job's final status, reading its output only once it's done. */
+  private static class CompletionHandler extends DefaultExecuteResultHandler {
+    final String jobId;
+    final ByteArrayOutputStream stdOut;
+    final ByteArrayOutputStream stdErr;
+    final CompletableFuture<JobStatus> completion = new CompletableFuture<>();
+
+    CompletionHandler(String jobId, ByteArrayOutputStream stdOut, ByteArrayOutputStream stdErr) {
+      this.jobId = jobId;
+      this.stdOut = stdOut;
+      this.stdErr = stdErr;
+    }
+
+    @Override
+    public void onProcessComplete(int exitValue) {
+      super.onProcessComplete(exitValue);
+      complete(exitValue);
+    }
+
+    @Override
+    public void onProcessFailed(ExecuteException e) {
+      super.onProcessFailed(e);
+      complete(e.getExitValue());
+    }
+
+    private void complete(int exitValue) {
+      log.info(jobId + " has terminated with exit code " + exitValue);
+
+      completion.complete(
+          new JobStatus()
+              .setId(jobId)
+              .setState(JobStatus.State.COMPLETED)
+              .setResult(exitValue == 0 ? JobStatus.Result.SUCCESS : JobStatus.Result.FAILURE)
+              .setStdOut(new String(stdOut.toByteArray()))
+              .setStdErr(new String(stdErr.toByteArray())));
+    }
+  }
+
   @Override
   public boolean jobExists(String jobId) {
-    return jobIdToHandlerMap.containsKey(jobId) || pendingJobSet.contains(jobId);
+    return jobIdToHandlerMap.containsKey(jobId);
   }
 
   @Override
@@ -160,43 +165,58 @@ public class JobExecutorLocal extends JobExecutor {
         return null;
       }
 
-      JobStatus jobStatus = new JobStatus().setId(jobId);
-
-      DefaultExecuteResultHandler resultHandler;
-      ByteArrayOutputStream stdOutStream;
-      ByteArrayOutputStream stdErrStream;
+      CompletableFuture<JobStatus> completion = handler.getResultHandler().completion;
+      if (completion.isDone()) {
+        jobIdToHandlerMap.remove(jobId);
+        return completion.join();
+      }
 
-      stdOutStream = handler.getStdOut();
-      stdErrStream = handler.getStdErr();
-      resultHandler = handler.getResultHandler();
+      ByteArrayOutputStream stdOutStream = handler.getStdOut();
+      ByteArrayOutputStream stdErrStream = handler.getStdErr();
 
       stdOutStream.flush();
       stdErrStream.flush();
 
-      jobStatus.setStdOut(new String(stdOutStream.toByteArray()));
-      jobStatus.setStdErr(new String(stdErrStream.toByteArray()));
-
-      if (resultHandler.hasResult()) {
-        jobStatus.setState(JobStatus.State.COMPLETED);
+      return new JobStatus()
+          .setId(jobId)
+          .setState(JobStatus.State.RUNNING)
+          .setStdOut(new String(stdOutStream.toByteArray()))
+          .setStdErr(new String(stdErrStream.toByteArray()));
+    } catch (Exception e) {
+      log.warn("Failed to retrieve status of " + jobId);
+      return null;
+    }
+  }
 
-        int exitValue = resultHandler.getExitValue();
-        log.info(jobId + " has terminated with exit code " + exitValue);
+  @Override
+  public CompletableFuture<JobStatus> submit(JobRequest jobRequest) {
+    String jobId = startJob(jobRequest);
+    ExecutionHandler handler = jobIdToHandlerMap.get(jobId);
+    if (handler == null) {
+      // Cancelled before it could be looked up.
+      return CompletableFuture.completedFuture(null);
+    }
 
-        if (exitValue == 0) {
-          jobStatus.setResult(JobStatus.Result.SUCCESS);
-        } else {
-          jobStatus.setResult(JobStatus.Result.FAILURE);
-        }
+    return handler
+        .getResultHandler()
+        .completion
+        .whenComplete((status, e) -> jobIdToHandlerMap.remove(jobId));
+  }
 
-        jobIdToHandlerMap.remove(jobId);
-      } else {
-        jobStatus.setState(JobStatus.State.RUNNING);
-      }
+  @Override
+  public JobStatus backoffWait(String jobId, long minWaitMillis, long maxWaitMillis)
+      throws InterruptedException {
+    ExecutionHandler handler = jobIdToHandlerMap.get(jobId);
+    if (handler == null) {
+      return super.backoffWait(jobId, minWaitMillis, maxWaitMillis);
+    }
 
-      return jobStatus;
-    } catch (Exception e) {
-      log.warn("Failed to retrieve status of " + jobId);
-      return null;
+    try {
+      JobStatus result = handler.getResultHandler().completion.get();
+      jobIdToHandlerMap.remove(jobId);
+      return result;
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Failed to wait for " + jobId, e.getCause());
     }
   }
 
@@ -204,10 +224,6 @@ public class JobExecutorLocal extends JobExecutor {
   public void cancelJob(String jobId) {
     log.info("Canceling job " + jobId + "...");
 
-    if (pendingJobSet.contains(jobId)) {
-      pendingJobSet.remove(jobId);
-    }
-
     // Remove the job from this executors's handler map.
     ExecutionHandler canceledJobHander = jobIdToHandlerMap.remove(jobId);
     if (canceledJobHander == null) {
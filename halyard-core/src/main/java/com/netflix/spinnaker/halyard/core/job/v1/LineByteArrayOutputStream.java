@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.job.v1;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hands each complete line written to it to a consumer, as it is written. Only the line currently
+ * being written is buffered, so this is suited to the output of long-running jobs.
+ */
+public class LineByteArrayOutputStream extends ByteArrayOutputStream {
+  private final Consumer<String> lineConsumer;
+
+  public LineByteArrayOutputStream(Consumer<String> lineConsumer) {
+    this.lineConsumer = lineConsumer;
+  }
+
+  @Override
+  public void write(int b) {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  // Lines are handed to the consumer outside of this stream's lock, since reading the job's status
+  // also locks this stream.
+  @Override
+  public void write(byte b[], int off, int len) {
+    List<String> lines = new ArrayList<>();
+    synchronized (this) {
+      int start = off;
+      for (int i = off; i < off + len; i++) {
+        if (b[i] == '\n') {
+          super.write(b, start, i - start);
+          lines.add(new String(buf, 0, count, StandardCharsets.UTF_8));
+          reset();
+          start = i + 1;
+        }
+      }
+
+      super.write(b, start, off + len - start);
+    }
+
+    lines.forEach(lineConsumer);
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.registry.v1;
+
+import com.netflix.spinnaker.halyard.core.FileModeUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+
+/**
+ * Tars up profile directories on disk, so archive profiles read from local or git sources are
+ * streamed from a file rather than built in memory on every read.
+ *
+ * <p>An archive is reused as long as its directory's fingerprint, made of each file's path, size,
+ * modification time and (if kept) mode, is unchanged; fingerprinting doesn't read any file's
+ * contents.
+ */
+@Slf4j
+public class ArchiveProfileCache {
+  private static final ArchiveProfileCache instance = new ArchiveProfileCache();
+
+  // Source directory (and whether modes are kept) to the archive built from it.
+  private final Map<String, Archive> archives = new ConcurrentHashMap<>();
+
+  private Path directory;
+
+  public static ArchiveProfileCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * @param profilePath is the directory to archive.
+   * @param keepModes is true iff the archive's entries should keep their files' modes.
+   * @return a stream over a tar of every file under the given directory.
+   * @throws IOException if the directory can't be read, including when it doesn't exist.
+   */
+  public InputStream readDirectory(Path profilePath, boolean keepModes) throws IOException {
+    List<Path> files;
+    try (Stream<Path> paths =
+        Files.walk(profilePath, Integer.MAX_VALUE, FileVisitOption.FOLLOW_LINKS)) {
+      files = paths.filter(path -> path.toFile().isFile()).sorted().collect(Collectors.toList());
+    }
+
+    String key = profilePath.toAbsolutePath().normalize() + (keepModes ? ":modes" : "");
+    String fingerprint = fingerprint(profilePath, files, keepModes);
+
+    // The archive is opened while holding the lock, so it can't be replaced before it's opened.
+    synchronized (this) {
+      Archive archive = archives.get(key);
+      if (archive == null || !archive.fingerprint.equals(fingerprint)) {
+        archive =
+            new Archive(
+                fingerprint, writeArchive(key + " " + fingerprint, profilePath, files, keepModes));
+        Archive previous = archives.put(key, archive);
+        if (previous != null) {
+          // Open streams on the previous archive can still be read after it's deleted.
+          Files.deleteIfExists(previous.file);
+        }
+      }
+
+      return Files.newInputStream(archive.file);
+    }
+  }
+
+  private static String fingerprint(Path profilePath, List<Path> files, boolean keepModes)
+      throws IOException {
+    MessageDigest digest = ProfileObjectCache.newDigest();
+    for (Path path : files) {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      String line =
+          String.join(
+              " ",
+              profilePath.relativize(path).toString(),
+              Long.toString(attributes.size()),
+              Long.toString(attributes.lastModifiedTime().toMillis()),
+              keepModes ? Integer.toString(fileMode(path)) : "",
+              "\n");
+      digest.update(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    return ProfileObjectCache.toHex(digest.digest());
+  }
+
+  // Archives are named after their source directory and its fingerprint.
+  private Path writeArchive(String name, Path profilePath, List<Path> files, boolean keepModes)
+      throws IOException {
+    MessageDigest digest = ProfileObjectCache.newDigest();
+    digest.update(name.getBytes(StandardCharsets.UTF_8));
+    Path result = getDirectory().resolve(ProfileObjectCache.toHex(digest.digest()) + ".tar");
+
+    Path temp = Files.createTempFile(getDirectory(), ".", ".tmp");
+    try {
+      try (OutputStream output = Files.newOutputStream(temp);
+          TarArchiveOutputStream tarArchive = new TarArchiveOutputStream(output)) {
+        for (Path path : files) {
+          TarArchiveEntry tarEntry =
+              new TarArchiveEntry(path.toFile(), profilePath.relativize(path).toString());
+          if (keepModes) {
+            tarEntry.setMode(fileMode(path));
+          }
+
+          tarArchive.putArchiveEntry(tarEntry);
+          Files.copy(path, tarArchive);
+          tarArchive.closeArchiveEntry();
+        }
+
+        tarArchive.finish();
+      }
+
+      Files.move(temp, result, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      result.toFile().deleteOnExit();
+      log.info("Archived " + profilePath + " to " + result);
+      return result;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  private static int fileMode(Path path) throws IOException {
+    return FileModeUtils.setFileBit(FileModeUtils.getFileMode(Files.getPosixFilePermissions(path)));
+  }
+
+  // Archives are derived from local files and cheap to rebuild, so they're kept in a directory
+  // private to this process, which is only readable by its owner.
+  private Path getDirectory() throws IOException {
+    if (directory == null) {
+      directory = Files.createTempDirectory("halyard-archive-profiles");
+      directory.toFile().deleteOnExit();
+    }
+
+    return directory;
+  }
+
+  private static class Archive {
+    final String fingerprint;
+    final Path file;
+
+    Archive(String fingerprint, Path file) {
+      this.fingerprint = fingerprint;
+      this.file = file;
+    }
+  }
+}
@@ -18,22 +18,12 @@
 
 package com.netflix.spinnaker.halyard.core.registry.v1;
 
-import com.netflix.spinnaker.halyard.core.FileModeUtils;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.FileVisitOption;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -85,29 +75,7 @@ public class GitProfileReader implements ProfileReader {
       throws IOException {
     Path profilePath = Paths.get(profilePath(artifactName, version, profileName));
 
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    TarArchiveOutputStream tarArchive = new TarArchiveOutputStream(os);
-
-    ArrayList<Path> filePathsToAdd =
-        java.nio.file.Files.walk(profilePath, Integer.MAX_VALUE, FileVisitOption.FOLLOW_LINKS)
-            .filter(path -> path.toFile().isFile())
-            .collect(Collectors.toCollection(ArrayList::new));
-
-    for (Path path : filePathsToAdd) {
-      TarArchiveEntry tarEntry =
-          new TarArchiveEntry(path.toFile(), profilePath.relativize(path).toString());
-      int permissions = FileModeUtils.getFileMode(Files.getPosixFilePermissions(path));
-      permissions = FileModeUtils.setFileBit(permissions);
-      tarEntry.setMode(permissions);
-      tarArchive.putArchiveEntry(tarEntry);
-      IOUtils.copy(Files.newInputStream(path), tarArchive);
-      tarArchive.closeArchiveEntry();
-    }
-
-    tarArchive.finish();
-    tarArchive.close();
-
-    return new ByteArrayInputStream(os.toByteArray());
+    return ArchiveProfileCache.getInstance().readDirectory(profilePath, true);
   }
 
   private String profilePath(String artifactName, String version, String profileFileName) {
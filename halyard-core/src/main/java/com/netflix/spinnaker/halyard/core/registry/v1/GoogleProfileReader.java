@@ -26,12 +26,16 @@ import com.google.api.services.storage.Storage;
 import com.google.api.services.storage.StorageScopes;
 import com.netflix.spinnaker.halyard.core.provider.v1.google.GoogleCredentials;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -52,6 +56,13 @@ public class GoogleProfileReader implements ProfileReader {
 
   @Autowired ApplicationContext applicationContext;
 
+  @Autowired String halconfigDirectory;
+
+  @Value("${spinnaker.config.input.gcs.cache.ttl-seconds:600}")
+  long cacheTtlSeconds;
+
+  private volatile ProfileObjectCache objectCache;
+
   private Yaml getYamlParser() {
     return applicationContext.getBean(Yaml.class);
   }
@@ -86,7 +97,9 @@ public class GoogleProfileReader implements ProfileReader {
 
   public InputStream readArchiveProfile(String artifactName, String version, String profileName)
       throws IOException {
-    return readProfile(artifactName, version, profileName + ".tar.gz");
+    // Archives are streamed from the disk cache rather than held in memory.
+    String path = profilePath(artifactName, version, profileName + ".tar.gz");
+    return Files.newInputStream(getObjectCache().getFile(path, new BucketObjectSource()));
   }
 
   String profilePath(String artifactName, String version, String profileFileName) {
@@ -97,26 +110,27 @@ public class GoogleProfileReader implements ProfileReader {
     return String.join("/", "bom", version + ".yml");
   }
 
-  private InputStream getContents(String objectName) throws IOException {
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
-    log.info("Getting object contents of " + objectName);
+  public ProfileObjectCache.Stats getCacheStats() {
+    return getObjectCache().getStats();
+  }
 
-    try {
-      applicationDefaultGoogleStorage
-          .objects()
-          .get(spinconfigBucket, objectName)
-          .executeMediaAndDownloadTo(output);
-    } catch (IOException e) {
-      log.debug(
-          "Getting object contents of {} failed. Retrying with no authentication.", objectName, e);
-      output = new ByteArrayOutputStream();
-      unauthenticatedGoogleStorage
-          .objects()
-          .get(spinconfigBucket, objectName)
-          .executeMediaAndDownloadTo(output);
+  private ProfileObjectCache getObjectCache() {
+    if (objectCache == null) {
+      synchronized (this) {
+        if (objectCache == null) {
+          objectCache =
+              new ProfileObjectCache(
+                  Paths.get(halconfigDirectory, ".cache", "gcs", spinconfigBucket),
+                  TimeUnit.SECONDS.toMillis(cacheTtlSeconds));
+        }
+      }
     }
 
-    return new ByteArrayInputStream(output.toByteArray());
+    return objectCache;
+  }
+
+  private InputStream getContents(String objectName) throws IOException {
+    return new ByteArrayInputStream(getObjectCache().get(objectName, new BucketObjectSource()));
   }
 
   private Storage createGoogleStorage(boolean useApplicationDefaultCreds) {
@@ -150,4 +164,38 @@ public class GoogleProfileReader implements ProfileReader {
         .setApplicationName(applicationName)
         .build();
   }
+
+  private class BucketObjectSource implements ProfileObjectCache.ObjectSource {
+    // Whichever client could read the object's metadata is used to download it.
+    private Storage storage = applicationDefaultGoogleStorage;
+
+    @Override
+    public Long getGeneration(String objectName) throws IOException {
+      try {
+        return getGeneration(applicationDefaultGoogleStorage, objectName);
+      } catch (IOException e) {
+        log.debug(
+            "Getting object metadata of {} failed. Retrying with no authentication.",
+            objectName,
+            e);
+        storage = unauthenticatedGoogleStorage;
+        return getGeneration(storage, objectName);
+      }
+    }
+
+    private Long getGeneration(Storage storage, String objectName) throws IOException {
+      return storage.objects().get(spinconfigBucket, objectName).execute().getGeneration();
+    }
+
+    @Override
+    public void download(String objectName, Long generation, OutputStream output)
+        throws IOException {
+      log.info("Getting object contents of " + objectName);
+      storage
+          .objects()
+          .get(spinconfigBucket, objectName)
+          .setGeneration(generation)
+          .executeMediaAndDownloadTo(output);
+    }
+  }
 }
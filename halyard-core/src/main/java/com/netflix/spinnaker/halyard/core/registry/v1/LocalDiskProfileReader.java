@@ -19,21 +19,12 @@
 package com.netflix.spinnaker.halyard.core.registry.v1;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.FileVisitOption;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
@@ -102,27 +93,7 @@ public class LocalDiskProfileReader implements ProfileReader {
   }
 
   public InputStream readArchiveProfileFrom(Path profilePath) throws IOException {
-
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    TarArchiveOutputStream tarArchive = new TarArchiveOutputStream(os);
-
-    ArrayList<Path> filePathsToAdd =
-        java.nio.file.Files.walk(profilePath, Integer.MAX_VALUE, FileVisitOption.FOLLOW_LINKS)
-            .filter(path -> path.toFile().isFile())
-            .collect(Collectors.toCollection(ArrayList::new));
-
-    for (Path path : filePathsToAdd) {
-      TarArchiveEntry tarEntry =
-          new TarArchiveEntry(path.toFile(), profilePath.relativize(path).toString());
-      tarArchive.putArchiveEntry(tarEntry);
-      IOUtils.copy(Files.newInputStream(path), tarArchive);
-      tarArchive.closeArchiveEntry();
-    }
-
-    tarArchive.finish();
-    tarArchive.close();
-
-    return new ByteArrayInputStream(os.toByteArray());
+    return ArchiveProfileCache.getInstance().readDirectory(profilePath, false);
   }
 
   private String profilePath(String artifactName, String version, String profileFileName) {
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.registry.v1;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Two-tier cache of objects (BOMs, profiles, versions) read from the profile bucket.
+ *
+ * <p>Objects are kept on disk in a content-addressed store, so identical profiles shared by many
+ * versions are stored once, and objects read with {@link #get} are also kept in memory. A cached
+ * object is used without any remote call for the configured TTL; after that its generation is
+ * checked against the bucket, and it is only downloaded again if it changed. If the bucket can't be
+ * reached, the cached copy is used.
+ */
+@Slf4j
+public class ProfileObjectCache {
+  interface ObjectSource {
+    /** @return the object's current generation. */
+    Long getGeneration(String objectName) throws IOException;
+
+    void download(String objectName, Long generation, OutputStream output) throws IOException;
+  }
+
+  private final Path objectDirectory;
+  private final Path indexDirectory;
+  private final long ttlMillis;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong revalidations = new AtomicLong();
+  private final AtomicLong offlineHits = new AtomicLong();
+  private final AtomicLong downloads = new AtomicLong();
+
+  ProfileObjectCache(Path directory, long ttlMillis) {
+    this.objectDirectory = directory.toAbsolutePath().normalize().resolve("objects");
+    this.indexDirectory = directory.toAbsolutePath().normalize().resolve("index");
+    this.ttlMillis = ttlMillis;
+  }
+
+  /** @return the object's contents, which are kept in memory. */
+  byte[] get(String objectName, ObjectSource source) throws IOException {
+    Entry entry = lookup(objectName, source);
+    if (entry.contents == null) {
+      entry = entry.withContents(Files.readAllBytes(objectDirectory.resolve(entry.digest)));
+      entries.put(objectName, entry);
+    }
+
+    return entry.contents;
+  }
+
+  /**
+   * @return the file holding the object's contents, meant for large objects that shouldn't be held
+   *     in memory.
+   */
+  Path getFile(String objectName, ObjectSource source) throws IOException {
+    return objectDirectory.resolve(lookup(objectName, source).digest);
+  }
+
+  private Entry lookup(String objectName, ObjectSource source) throws IOException {
+    Entry cached = entries.get(objectName);
+    if (cached == null) {
+      // Entries read from disk are always revalidated.
+      cached = readEntry(objectName);
+    }
+
+    long now = System.currentTimeMillis();
+    if (cached != null && now - cached.fetchedAt < ttlMillis) {
+      hits.incrementAndGet();
+      return cached;
+    }
+
+    Long generation;
+    try {
+      generation = source.getGeneration(objectName);
+    } catch (IOException e) {
+      if (cached == null) {
+        throw e;
+      }
+
+      log.warn("Unable to check for changes to " + objectName + ", using the cached copy", e);
+      offlineHits.incrementAndGet();
+      return cached;
+    }
+
+    Entry entry;
+    if (cached != null && Objects.equals(cached.generation, generation)) {
+      revalidations.incrementAndGet();
+      entry = cached.withFetchedAt(now);
+    } else {
+      String digest = download(objectName, generation, source);
+      downloads.incrementAndGet();
+      entry = new Entry(generation, digest, null, now);
+      writeIndex(objectName, entry);
+      log.info("Downloaded " + objectName + " (" + getStats() + ")");
+    }
+
+    entries.put(objectName, entry);
+    return entry;
+  }
+
+  public Stats getStats() {
+    return new Stats()
+        .setEntries(entries.size())
+        .setHits(hits.get())
+        .setRevalidations(revalidations.get())
+        .setOfflineHits(offlineHits.get())
+        .setDownloads(downloads.get());
+  }
+
+  // Streams the object into the object store, returning the digest it is stored under.
+  private String download(String objectName, Long generation, ObjectSource source)
+      throws IOException {
+    Files.createDirectories(objectDirectory);
+    Path temp = Files.createTempFile(objectDirectory, ".", ".tmp");
+    try {
+      MessageDigest digest = newDigest();
+      try (OutputStream output = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+        source.download(objectName, generation, output);
+      }
+
+      String result = toHex(digest.digest());
+      Path object = objectDirectory.resolve(result);
+      if (!Files.exists(object)) {
+        Files.move(temp, object, StandardCopyOption.ATOMIC_MOVE);
+      }
+
+      return result;
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  // The index holds "<generation> <digest>" for each object name, pointing into the object store.
+  private Entry readEntry(String objectName) {
+    Path index = indexPath(objectName);
+    if (index == null || !Files.isRegularFile(index)) {
+      return null;
+    }
+
+    try {
+      String[] fields = new String(Files.readAllBytes(index), StandardCharsets.UTF_8).split(" ");
+      String digest = fields[1].trim();
+      if (!Files.isRegularFile(objectDirectory.resolve(digest))) {
+        return null;
+      }
+
+      Long generation = fields[0].equals("null") ? null : Long.valueOf(fields[0]);
+      return new Entry(generation, digest, null, 0);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Ignoring unreadable cache entry for " + objectName, e);
+      return null;
+    }
+  }
+
+  private void writeIndex(String objectName, Entry entry) {
+    Path index = indexPath(objectName);
+    if (index == null) {
+      return;
+    }
+
+    try {
+      Files.createDirectories(index.getParent());
+      Path temp = Files.createTempFile(index.getParent(), ".", ".tmp");
+      try {
+        Files.write(temp, (entry.generation + " " + entry.digest).getBytes(StandardCharsets.UTF_8));
+        Files.move(
+            temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      log.warn("Unable to index " + objectName + " on disk", e);
+    }
+  }
+
+  private Path indexPath(String objectName) {
+    Path result = indexDirectory.resolve(objectName).normalize();
+    return result.startsWith(indexDirectory) ? result : null;
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    StringBuilder result = new StringBuilder();
+    for (byte b : bytes) {
+      result.append(String.format("%02x", b));
+    }
+    return result.toString();
+  }
+
+  private static class Entry {
+    final Long generation;
+    final String digest;
+    final byte[] contents;
+    final long fetchedAt;
+
+    Entry(Long generation, String digest, byte[] contents, long fetchedAt) {
+      this.generation = generation;
+      this.digest = digest;
+      this.contents = contents;
+      this.fetchedAt = fetchedAt;
+    }
+
+    Entry withContents(byte[] contents) {
+      return new Entry(generation, digest, contents, fetchedAt);
+    }
+
+    Entry withFetchedAt(long fetchedAt) {
+      return new Entry(generation, digest, contents, fetchedAt);
+    }
+  }
+
+  @Data
+  public static class Stats {
+    int entries;
+    long hits;
+    long revalidations;
+    long offlineHits;
+    long downloads;
+  }
+}
@@ -20,10 +20,19 @@ package com.netflix.spinnaker.halyard.core.resource.v1;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.io.IOUtils;
 
 public class JarResourceReader {
+  // Resources in the JAR don't change, so each is only read once.
+  private static final Map<String, String> resources = new ConcurrentHashMap<>();
+
   static String readResource(String path) {
+    return resources.computeIfAbsent(path, JarResourceReader::readUncachedResource);
+  }
+
+  private static String readUncachedResource(String path) {
     InputStream contents = JarResourceReader.class.getResourceAsStream(path);
 
     if (contents == null) {
@@ -19,18 +19,41 @@
 package com.netflix.spinnaker.halyard.core.resource.v1;
 
 import com.hubspot.jinjava.Jinjava;
+import com.hubspot.jinjava.interpret.Context;
 import com.hubspot.jinjava.interpret.FatalTemplateErrorsException;
+import com.hubspot.jinjava.interpret.JinjavaInterpreter;
+import com.hubspot.jinjava.interpret.TemplateError;
+import com.hubspot.jinjava.interpret.TemplateError.ErrorType;
+import com.hubspot.jinjava.tree.Node;
 import com.netflix.spinnaker.halyard.core.error.v1.HalException;
 import com.netflix.spinnaker.halyard.core.problem.v1.Problem;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 public abstract class JinjaTemplatedResource extends TemplatedResource {
-  private Jinjava jinjava = new Jinjava();
+  // Jinjava is thread-safe, and each render gets its own interpreter and context, so one engine is
+  // shared by all resources.
+  private static final Jinjava jinjava = new Jinjava();
+
+  // Parsed templates, keyed on getTemplateKey().
+  private static final Map<String, Node> templates = new ConcurrentHashMap<>();
+
+  /**
+   * @return a key identifying this resource's template, if its contents never change, in which
+   *     case the template is parsed only once. Null if the template shouldn't be cached.
+   */
+  protected String getTemplateKey() {
+    return null;
+  }
 
   @Override
   public String toString() {
     String contents = getContents();
     try {
-      return jinjava.render(contents, bindings);
+      return render(contents);
     } catch (FatalTemplateErrorsException e) {
       throw new HalException(
           Problem.Severity.FATAL,
@@ -38,4 +61,41 @@ public abstract class JinjaTemplatedResource extends TemplatedResource {
           e);
     }
   }
+
+  private String render(String contents) {
+    String key = getTemplateKey();
+    Node template = key != null ? templates.get(key) : null;
+    if (template == null) {
+      template = withInterpreter(contents, interpreter -> interpreter.parse(contents));
+      if (key != null) {
+        templates.putIfAbsent(key, template);
+      }
+    }
+
+    Node root = template;
+    return withInterpreter(contents, interpreter -> interpreter.render(root));
+  }
+
+  private <T> T withInterpreter(String contents, Function<JinjavaInterpreter, T> action) {
+    JinjavaInterpreter interpreter =
+        new JinjavaInterpreter(
+            jinjava, new Context(jinjava.getGlobalContext(), bindings), jinjava.getGlobalConfig());
+    JinjavaInterpreter.pushCurrent(interpreter);
+    T result;
+    try {
+      result = action.apply(interpreter);
+    } finally {
+      JinjavaInterpreter.popCurrent();
+    }
+
+    List<TemplateError> fatalErrors =
+        interpreter.getErrors().stream()
+            .filter(e -> e.getSeverity() == ErrorType.FATAL)
+            .collect(Collectors.toList());
+    if (!fatalErrors.isEmpty()) {
+      throw new FatalTemplateErrorsException(contents, fatalErrors);
+    }
+
+    return result;
+  }
 }
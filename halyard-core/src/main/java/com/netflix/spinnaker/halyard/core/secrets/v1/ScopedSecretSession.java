@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.secrets.v1;
+
+import com.netflix.spinnaker.kork.secrets.SecretManager;
+import com.netflix.spinnaker.kork.secrets.SecretSession;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A secret session shared by a task and all of the tasks and threads it spawns, so that each secret
+ * is decrypted (often with a remote call) once per task tree rather than once per thread.
+ *
+ * <p>Decrypted values are only ever held in memory, for at most the session's TTL. Decrypted bytes
+ * are zeroed when they expire or the session is cleared; strings can't be, so they are only
+ * dropped.
+ *
+ * <p>Each session counts its own cache hits and remote decrypts, which are also added to counters
+ * shared by every session in the process.
+ */
+class ScopedSecretSession extends SecretSession {
+  static final Counters total = new Counters();
+
+  private final Counters counters = new Counters();
+
+  private final SecretManager secretManager;
+  private final long ttlMillis;
+
+  private final Map<String, Entry<String>> strings = new ConcurrentHashMap<>();
+  private final Map<String, Entry<byte[]>> bytes = new ConcurrentHashMap<>();
+  private final Map<String, Entry<Path>> files = new ConcurrentHashMap<>();
+
+  ScopedSecretSession(SecretManager secretManager, long ttlMillis) {
+    super(secretManager);
+    this.secretManager = secretManager;
+    this.ttlMillis = ttlMillis;
+  }
+
+  @Override
+  public String decrypt(String encryptedSecret) {
+    return get(strings, encryptedSecret, secretManager::decrypt);
+  }
+
+  @Override
+  public Path decryptAsFile(String encryptedSecret) {
+    return get(files, encryptedSecret, secretManager::decryptAsFile);
+  }
+
+  @Override
+  public byte[] decryptAsBytes(String encryptedSecret) {
+    byte[] result = get(bytes, encryptedSecret, secretManager::decryptAsBytes);
+    // Hand out a copy, so that zeroing the cached bytes can't corrupt a caller still using them.
+    return result != null ? result.clone() : null;
+  }
+
+  @Override
+  public void clearCachedSecrets() {
+    clear(strings);
+    clear(bytes);
+    clear(files);
+    super.clearCachedSecrets();
+  }
+
+  private static void clear(Map<String, ? extends Entry<?>> cache) {
+    cache.values().forEach(Entry::clear);
+    cache.clear();
+  }
+
+  // Entries are locked individually, so different secrets are decrypted concurrently while each
+  // one is only decrypted once.
+  private <V> V get(Map<String, Entry<V>> cache, String key, Function<String, V> decrypt) {
+    Entry<V> entry = cache.computeIfAbsent(key, k -> new Entry<>());
+    synchronized (entry) {
+      long now = System.currentTimeMillis();
+      if (entry.loaded && now < entry.expiresAt) {
+        counters.hits.incrementAndGet();
+        total.hits.incrementAndGet();
+        return entry.value;
+      }
+
+      if (entry.loaded) {
+        counters.expirations.incrementAndGet();
+        total.expirations.incrementAndGet();
+        entry.clear();
+      }
+
+      long start = System.currentTimeMillis();
+      V value = decrypt.apply(key);
+      long elapsed = System.currentTimeMillis() - start;
+      counters.recordRemoteDecrypt(elapsed);
+      total.recordRemoteDecrypt(elapsed);
+
+      entry.value = value;
+      entry.loaded = true;
+      entry.expiresAt = start + ttlMillis;
+      return value;
+    }
+  }
+
+  /** @return the hits, remote decrypts and expirations of this session alone. */
+  SecretSessionManager.Stats getStats() {
+    return counters.toStats();
+  }
+
+  static class Counters {
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong remoteDecrypts = new AtomicLong();
+    final AtomicLong remoteDecryptMillis = new AtomicLong();
+    final AtomicLong expirations = new AtomicLong();
+
+    void recordRemoteDecrypt(long millis) {
+      remoteDecrypts.incrementAndGet();
+      remoteDecryptMillis.addAndGet(millis);
+    }
+
+    SecretSessionManager.Stats toStats() {
+      return new SecretSessionManager.Stats()
+          .setHits(hits.get())
+          .setRemoteDecrypts(remoteDecrypts.get())
+          .setRemoteDecryptMillis(remoteDecryptMillis.get())
+          .setExpirations(expirations.get());
+    }
+  }
+
+  private static class Entry<V> {
+    V value;
+    boolean loaded;
+    long expiresAt;
+
+    synchronized void clear() {
+      if (value instanceof byte[]) {
+        Arrays.fill((byte[]) value, (byte) 0);
+      }
+
+      value = null;
+      loaded = false;
+    }
+  }
+}
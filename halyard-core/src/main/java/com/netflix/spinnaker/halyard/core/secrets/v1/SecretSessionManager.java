@@ -16,11 +16,17 @@
 
 package com.netflix.spinnaker.halyard.core.secrets.v1;
 
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
 import com.netflix.spinnaker.kork.secrets.EncryptedSecret;
 import com.netflix.spinnaker.kork.secrets.SecretManager;
 import com.netflix.spinnaker.kork.secrets.SecretSession;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -33,6 +39,9 @@ public class SecretSessionManager {
 
   @Autowired private SecretManager secretManager;
 
+  @Value("${halyard.secrets.cache.ttl-seconds:300}")
+  long cacheTtlSeconds;
+
   public static void clearSession() {
     SecretSession session = secretSessions.get();
     if (session != null) {
@@ -41,15 +50,59 @@ public class SecretSessionManager {
     }
   }
 
-  public SecretSession getSession() {
-    SecretSession session = secretSessions.get();
+  /** @return the session bound to the current thread, or null if it hasn't needed one yet. */
+  public static SecretSession currentSession() {
+    return secretSessions.get();
+  }
+
+  /**
+   * Binds the given session to the current thread, e.g. to restore the session a thread was using
+   * before it ran a task.
+   *
+   * @param session is the session to bind, or null to unbind the current one without clearing it.
+   */
+  public static void setSession(SecretSession session) {
     if (session == null) {
-      session = new SecretSession(secretManager);
+      secretSessions.remove();
+    } else {
       secretSessions.set(session);
     }
+  }
+
+  /**
+   * Returns the session bound to the current thread. Within a task, that is the session shared by
+   * the whole task tree, created by whichever thread of the tree first needs it.
+   *
+   * @return the current session, never null.
+   */
+  public SecretSession getSession() {
+    SecretSession session = secretSessions.get();
+    if (session != null) {
+      return session;
+    }
+
+    DaemonTask task = DaemonTaskHandler.getTask();
+    if (task == null) {
+      session = newSession();
+    } else {
+      AtomicReference<SecretSession> scope = task.getSecretScope();
+      synchronized (scope) {
+        session = scope.get();
+        if (session == null) {
+          session = newSession();
+          scope.set(session);
+        }
+      }
+    }
+
+    secretSessions.set(session);
     return session;
   }
 
+  private SecretSession newSession() {
+    return new ScopedSecretSession(secretManager, TimeUnit.SECONDS.toMillis(cacheTtlSeconds));
+  }
+
   /**
    * Takes an encrypted string or path to an encrypted file and returns the decrypted value.
    *
@@ -110,4 +163,26 @@ public class SecretSessionManager {
   public String encrypt(String unencryptedString) {
     throw new UnsupportedOperationException();
   }
+
+  /** @return the hits, remote decrypts and expirations of every session in this process. */
+  public static Stats getStats() {
+    return ScopedSecretSession.total.toStats();
+  }
+
+  /**
+   * @param session is the session to report on.
+   * @return the hits, remote decrypts and expirations of the given session alone, or null if it
+   *     doesn't keep any.
+   */
+  public static Stats getStats(SecretSession session) {
+    return session instanceof ScopedSecretSession ? ((ScopedSecretSession) session).getStats() : null;
+  }
+
+  @Data
+  public static class Stats {
+    long hits;
+    long remoteDecrypts;
+    long remoteDecryptMillis;
+    long expirations;
+  }
 }
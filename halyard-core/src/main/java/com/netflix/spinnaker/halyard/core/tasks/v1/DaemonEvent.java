@@ -13,6 +13,9 @@ public class DaemonEvent {
 
   Long timestamp;
 
+  // Orders this event among the updates of every task, see DaemonTask#awaitUpdates.
+  long sequence;
+
   @Override
   public String toString() {
     return String.format("[%s] (%s) %s", new Date(timestamp).toString(), stage, message);
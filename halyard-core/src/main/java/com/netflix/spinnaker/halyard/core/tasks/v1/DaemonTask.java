@@ -10,10 +10,13 @@ import com.netflix.spinnaker.halyard.core.problem.v1.Problem;
 import com.netflix.spinnaker.halyard.core.problem.v1.ProblemBuilder;
 import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
 import com.netflix.spinnaker.halyard.core.secrets.v1.SecretSessionManager;
+import com.netflix.spinnaker.kork.secrets.SecretSession;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import lombok.Data;
@@ -27,21 +30,37 @@ import lombok.extern.slf4j.Slf4j;
 @Data
 @Slf4j
 public class DaemonTask<C, T> {
-  List<DaemonEvent> events = new ArrayList<>();
-  List<DaemonTask> children = new ArrayList<>();
+  // Guards updateSequence, which orders every event, state change and new child of every task so
+  // that clients can ask for everything that happened after the last update they saw.
+  private static final Object updates = new Object();
+  private static long updateSequence;
+
+  List<DaemonEvent> events = Collections.synchronizedList(new ArrayList<>());
+  List<DaemonTask> children = Collections.synchronizedList(new ArrayList<>());
   final String name;
   final String uuid;
   boolean timedOut;
   final long timeout;
   final String version;
-  State state = State.NOT_STARTED;
+  // Volatile so that whoever sees the task terminal also sees its response.
+  volatile State state = State.NOT_STARTED;
   DaemonResponse<T> response;
   Exception fatalError;
-  List<String> runningJobs = new ArrayList<>();
+  List<String> runningJobs = Collections.synchronizedList(new ArrayList<>());
 
+  // The thread running this task, only set while it runs since task threads are pooled.
   @JsonIgnore Thread runner;
+  @JsonIgnore boolean interruptRequested;
+  // Set under this task's lock once it is terminal and its resources are cleaned up.
+  @JsonIgnore boolean completed;
   @JsonIgnore C context;
   @JsonIgnore String currentStage;
+  // The updateSequence of the last change to this task, and of it being attached to its parent.
+  @JsonIgnore long lastUpdate;
+  @JsonIgnore long attachedUpdate;
+  // The secrets decrypted by this task, shared with (but only cleared by) the root of its tree.
+  @JsonIgnore AtomicReference<SecretSession> secretScope = new AtomicReference<>();
+  @JsonIgnore boolean ownsSecretScope = true;
 
   @JsonCreator
   public DaemonTask(@JsonProperty("name") String name, @JsonProperty("timeout") long timeout) {
@@ -70,11 +89,63 @@ public class DaemonTask<C, T> {
           "Illegal attempt to write an event when no stage has started");
     }
 
-    events.add(
+    DaemonEvent event =
         new DaemonEvent()
             .setStage(currentStage)
             .setMessage(message)
-            .setTimestamp(System.currentTimeMillis()));
+            .setTimestamp(System.currentTimeMillis());
+    recordUpdate(() -> events.add(event.setSequence(lastUpdate)));
+  }
+
+  private void recordUpdate(Runnable update) {
+    synchronized (updates) {
+      lastUpdate = ++updateSequence;
+      update.run();
+      updates.notifyAll();
+    }
+  }
+
+  private boolean hasUpdatesSince(long sinceUpdate) {
+    if (lastUpdate > sinceUpdate) {
+      return true;
+    }
+
+    for (DaemonTask child : children) {
+      if (child.hasUpdatesSince(sinceUpdate)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Waits until this task or any of its children changes after the given update, or this task
+   * completes, and reports what changed.
+   *
+   * @param sinceUpdate is the lastUpdate of the previous updates returned, or 0 for everything.
+   * @param timeoutMillis is how long to wait for a change before reporting no changes.
+   * @return the state of every task in this task's tree, with the events added since the update.
+   */
+  public TaskUpdates awaitUpdates(long sinceUpdate, long timeoutMillis)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (updates) {
+      long remaining = timeoutMillis;
+      while (!state.isTerminal() && !hasUpdatesSince(sinceUpdate) && remaining > 0) {
+        updates.wait(remaining);
+        remaining = deadline - System.currentTimeMillis();
+      }
+
+      TaskUpdates result = new TaskUpdates().setLastUpdate(updateSequence);
+      consumeTaskTree(
+          t -> {
+            // Report every event of a task attached since, some may predate its attachment.
+            long since = t.attachedUpdate > sinceUpdate ? 0 : sinceUpdate;
+            result.getTasks().add(new TaskUpdates.TaskUpdate(t, since));
+          });
+      return result;
+    }
   }
 
   public void consumeTaskTree(Consumer<DaemonTask> c) {
@@ -103,17 +174,54 @@ public class DaemonTask<C, T> {
   }
 
   private boolean isInterrupted() {
-    return runner.isInterrupted();
+    return interruptRequested;
+  }
+
+  public synchronized void interrupt() {
+    interruptRequested = true;
+    if (runner != null) {
+      runner.interrupt();
+    }
+  }
+
+  /**
+   * Binds this task to the thread about to run it.
+   *
+   * @return false iff the task was interrupted (or timed out) before it got to run.
+   */
+  synchronized boolean start(Thread thread) {
+    if (interruptRequested) {
+      return false;
+    }
+
+    runner = thread;
+    recordUpdate(() -> state = State.RUNNING);
+    return true;
   }
 
-  public void interrupt() {
-    runner.interrupt();
+  /** Releases the thread that ran this task, so it can't be interrupted on the task's behalf. */
+  synchronized void finish() {
+    runner = null;
+    Thread.interrupted();
+  }
+
+  /** Marks this task as done with, waking anything reaping it. */
+  synchronized void complete() {
+    completed = true;
+    notifyAll();
   }
 
   void cleanupResources() {
     log.info(this + " killing all jobs created by this task " + String.join(", ", runningJobs));
     DaemonTaskHandler.getJobExecutor().cancelJobs(new ArrayList<>(runningJobs));
-    SecretSessionManager.clearSession();
+    if (ownsSecretScope) {
+      SecretSession session = secretScope.getAndSet(null);
+      if (session != null) {
+        session.clearCachedSecrets();
+        log.info(this + " cleared its secrets (" + SecretSessionManager.getStats(session) + ")");
+      }
+    }
+
     for (DaemonTask child : children) {
       if (child != null) {
         log.info(this + " interrupting child " + child);
@@ -128,45 +236,56 @@ public class DaemonTask<C, T> {
   }
 
   private void inSucceededState() {
-    state = State.SUCCEEDED;
+    recordUpdate(() -> state = State.SUCCEEDED);
   }
 
   private void inFailedState() {
     if (isTimedOut()) {
-      state = State.TIMED_OUT;
+      recordUpdate(() -> state = State.TIMED_OUT);
     } else if (isInterrupted()) {
-      state = State.INTERRUPTED;
+      recordUpdate(() -> state = State.INTERRUPTED);
     } else {
-      state = State.FAILED;
+      recordUpdate(() -> state = State.FAILED);
     }
   }
 
+  // The response is set before the task turns terminal, since that wakes clients waiting on it.
   public void success(DaemonResponse<T> response) {
-    inSucceededState();
     this.response = response;
+    inSucceededState();
   }
 
   public void failure(Exception e) {
-    inFailedState();
     fatalError = e;
     Problem problem =
         new ProblemBuilder(Problem.Severity.FATAL, "Unexpected exception: " + e).build();
     response = new DaemonResponse<>(null, new ProblemSet(problem));
+    inFailedState();
   }
 
   public void failure(HalException e) {
-    inFailedState();
     fatalError = e;
     response = new DaemonResponse<>(null, e.getProblems());
+    inFailedState();
   }
 
   <Q, P> DaemonTask<Q, P> spawnChild(
       Supplier<DaemonResponse<P>> childRunner, String name, long timeout) {
-    DaemonTask child = TaskRepository.submitTask(childRunner, name, timeout);
-    children.add(child);
+    DaemonTask child = TaskRepository.submitTask(childRunner, name, timeout, this);
+    recordUpdate(
+        () -> {
+          child.attachedUpdate = lastUpdate;
+          children.add(child);
+        });
     return child;
   }
 
+  /** Makes this task use the secrets of the given task's tree, rather than decrypt its own. */
+  void shareSecretScope(DaemonTask parent) {
+    secretScope = parent.secretScope;
+    ownsSecretScope = false;
+  }
+
   <P> DaemonResponse<P> reapChild(DaemonTask task) throws InterruptedException {
     DaemonTask childTask =
         children.stream()
@@ -177,14 +296,11 @@ public class DaemonTask<C, T> {
                     new IllegalArgumentException(
                         "Child " + task + " does not belong to this task " + this + ""));
 
-    // Spin due to spurious wakeups
-    while (!childTask.getState().isTerminal()) {
-      try {
-        synchronized (childTask) {
-          childTask.wait();
-        }
-      } catch (InterruptedException e) {
-        throw e;
+    // Check under the lock the child completes under, so its completion can't slip in between
+    // the check and the wait. Spin due to spurious wakeups.
+    synchronized (childTask) {
+      while (!childTask.completed) {
+        childTask.wait();
       }
     }
 
@@ -5,6 +5,9 @@ import com.netflix.spinnaker.halyard.core.error.v1.HalException;
 import com.netflix.spinnaker.halyard.core.job.v1.DaemonLocalJobExecutor;
 import com.netflix.spinnaker.halyard.core.job.v1.JobExecutor;
 import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
+import com.netflix.spinnaker.halyard.core.secrets.v1.SecretSessionManager;
+import com.netflix.spinnaker.kork.secrets.SecretSession;
+import java.util.concurrent.Callable;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Supplier;
@@ -24,6 +27,35 @@ public class DaemonTaskHandler {
     return localTask.get();
   }
 
+  /**
+   * Wraps work handed to another thread (e.g. a thread pool rather than a child task) so that it
+   * logs to, runs jobs for, reads the context of, and shares the secrets of the task that is
+   * current on the calling thread.
+   *
+   * @param callable the work to run.
+   * @return the wrapped work.
+   */
+  public static <T> Callable<T> withCurrentTask(Callable<T> callable) {
+    DaemonTask task = getTask();
+    return () -> {
+      DaemonTask previous = getTask();
+      SecretSession previousSession = SecretSessionManager.currentSession();
+      setTask(task);
+      // Within a task, the session is found through (and shared with) the task's secret scope.
+      SecretSessionManager.setSession(null);
+      try {
+        return callable.call();
+      } finally {
+        if (task == null) {
+          // Outside a task, the session was this call's alone.
+          SecretSessionManager.clearSession();
+        }
+        SecretSessionManager.setSession(previousSession);
+        setTask(previous);
+      }
+    };
+  }
+
   public static Object getContext() {
     return localTask.get().getContext();
   }
@@ -42,35 +74,7 @@ public class DaemonTaskHandler {
                   response,
                   (o, t) -> {
                     DaemonResponse<U> collector = (DaemonResponse<U>) o;
-                    DaemonTask child = (DaemonTask) t;
-                    DaemonResponse<T> childResponse;
-                    try {
-                      childResponse = task.reapChild(child);
-                    } catch (InterruptedException e) {
-                      throw new DaemonTaskInterrupted("Interrupted during reap", e);
-                    }
-
-                    DaemonTask.State state = child.getState();
-                    if (!state.isTerminal()) {
-                      throw new IllegalStateException(
-                          "Child task " + child + " reaped but non-terminal.");
-                    }
-
-                    switch (state) {
-                      case FAILED:
-                        throw new HalException(childResponse.getProblemSet().getProblems());
-                      case INTERRUPTED:
-                        task.interrupt();
-                        throw new DaemonTaskInterrupted(child.getFatalError());
-                      case TIMED_OUT:
-                        task.timeout();
-                        throw new DaemonTaskInterrupted("Child task timed out");
-                      case SUCCEEDED:
-                        break;
-                      default:
-                        throw new IllegalStateException("Unknown terminal state " + state);
-                    }
-
+                    DaemonResponse<T> childResponse = reapChild((DaemonTask) t);
                     collector.getProblemSet().addAll(childResponse.getProblemSet());
                     collector.setResponseBody(
                         accumulator.apply(
@@ -89,6 +93,49 @@ public class DaemonTaskHandler {
     }
   }
 
+  /**
+   * Waits for a single child of the current task to complete, in whatever order the children are
+   * reaped, failing the current task just as {@link #reduceChildren} would if the child failed.
+   *
+   * @param child is the child task to wait for.
+   * @return the child's response, if it succeeded.
+   */
+  public static <T> DaemonResponse<T> reapChild(DaemonTask child) {
+    DaemonTask task = getTask();
+    if (task == null) {
+      throw new IllegalStateException("You must be running a DaemonTask to reap a child task");
+    }
+
+    DaemonResponse<T> childResponse;
+    try {
+      childResponse = task.reapChild(child);
+    } catch (InterruptedException e) {
+      throw new DaemonTaskInterrupted("Interrupted during reap", e);
+    }
+
+    DaemonTask.State state = child.getState();
+    if (!state.isTerminal()) {
+      throw new IllegalStateException("Child task " + child + " reaped but non-terminal.");
+    }
+
+    switch (state) {
+      case FAILED:
+        throw new HalException(childResponse.getProblemSet().getProblems());
+      case INTERRUPTED:
+        task.interrupt();
+        throw new DaemonTaskInterrupted(child.getFatalError());
+      case TIMED_OUT:
+        task.timeout();
+        throw new DaemonTaskInterrupted("Child task timed out");
+      case SUCCEEDED:
+        break;
+      default:
+        throw new IllegalStateException("Unknown terminal state " + state);
+    }
+
+    return childResponse;
+  }
+
   public static <C, T> DaemonTask<C, T> submitTask(
       Supplier<DaemonResponse<T>> taskSupplier, String name, long timeout) {
     DaemonTask task = getTask();
@@ -2,12 +2,20 @@ package com.netflix.spinnaker.halyard.core.tasks.v1;
 
 import com.netflix.spinnaker.halyard.core.DaemonResponse;
 import com.netflix.spinnaker.halyard.core.error.v1.HalException;
+import com.netflix.spinnaker.halyard.core.secrets.v1.SecretSessionManager;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask.State;
+import com.netflix.spinnaker.kork.secrets.SecretSession;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import lombok.Data;
@@ -26,103 +34,159 @@ public class TaskRepository {
                 .collect(Collectors.toList()));
   }
 
-  // The amount of time before a task is collected after its timeout is invoked.
+  // The amount of time before a task is collected after it completes or its timeout is invoked.
   private static long DELETE_TASK_INFO_WINDOW = TimeUnit.MINUTES.toMillis(2);
   public static long DEFAULT_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
 
+  // Tasks routinely wait on the child tasks they spawn, so the default executor must never queue a
+  // task behind busy threads; it only saves creating a thread for each task.
+  private static Executor executor = Executors.newCachedThreadPool(daemonThreadFactory("task"));
+
+  // Drives every task timeout and task info deletion, rather than a sleeping thread per task.
+  private static final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("task-scheduler"));
+
+  private static final AtomicInteger queuedTasks = new AtomicInteger();
+  private static final AtomicInteger activeTasks = new AtomicInteger();
+
   private static void deleteTaskInfo(String uuid) {
     tasks.remove(uuid);
   }
 
+  /**
+   * Replaces the executor tasks are run on. Since parent tasks block on their children, an executor
+   * with a bounded number of threads can deadlock once every thread is held by a waiting parent.
+   *
+   * @param executor the executor to run every subsequently submitted task on.
+   */
+  public static void setExecutor(Executor executor) {
+    TaskRepository.executor = executor;
+  }
+
+  public static Stats getStats() {
+    return new Stats()
+        .setActive(activeTasks.get())
+        .setQueued(queuedTasks.get())
+        .setRetained(tasks.size());
+  }
+
   public static <C, T> DaemonTask<C, T> submitTask(
       Supplier<DaemonResponse<T>> runner, String name, long timeout) {
+    return submitTask(runner, name, timeout, null);
+  }
+
+  static <C, T> DaemonTask<C, T> submitTask(
+      Supplier<DaemonResponse<T>> runner, String name, long timeout, DaemonTask parent) {
     DaemonTask<C, T> task = new DaemonTask<>(name, timeout);
+    if (parent != null) {
+      task.shareSecretScope(parent);
+    }
     String uuid = task.getUuid();
     log.info("Scheduling task " + task);
-    Runnable r =
+    tasks.put(uuid, task);
+    queuedTasks.incrementAndGet();
+
+    ScheduledFuture<?> interrupter =
+        scheduler.schedule(() -> timeout(task, timeout), timeout, TimeUnit.MILLISECONDS);
+    executor.execute(
         () -> {
-          log.info("Starting task " + task);
-          DaemonTaskHandler.setTask(task);
-          task.setState(State.RUNNING);
+          queuedTasks.decrementAndGet();
           try {
-            task.success(runner.get());
-          } catch (HalException e) {
-            log.info("Task " + task + " failed with HalException: ", e);
-            task.failure(e);
-          } catch (Exception e) {
-            log.warn("Task " + task + " failed with unexpected reason: ", e);
-            task.failure(e);
+            run(task, runner);
           } finally {
-            task.cleanupResources();
-
-            log.info("Task " + task + " completed");
-            // Notify after changing state to avoid data-race where threads are notified before
-            // thread appears terminal
-            synchronized (task) {
-              task.notifyAll();
-            }
+            interrupter.cancel(false);
+            scheduleTaskInfoDeletion(uuid);
           }
-        };
-
-    Thread t = new Thread(r);
-    tasks.put(uuid, task.setRunner(t));
-    t.start();
+        });
 
-    Thread interrupt = new Thread(new Interrupter(timeout, task));
-    interrupt.start();
+    return task;
+  }
 
+  /**
+   * Runs a task to completion on the calling thread, for work short enough that handing it to
+   * another thread and polling for its result costs more than the work itself. The task isn't
+   * stored, since nothing will poll for it, and isn't subject to a timeout.
+   */
+  public static <C, T> DaemonTask<C, T> runTask(Supplier<DaemonResponse<T>> runner, String name) {
+    DaemonTask<C, T> task = new DaemonTask<>(name, DEFAULT_TIMEOUT);
+    log.info("Running task " + task + " inline");
+    run(task, runner);
     return task;
   }
 
-  private static class Interrupter implements Runnable {
-    final long startTime;
-    final long endTime;
-    final DaemonTask target;
+  private static <C, T> void run(DaemonTask<C, T> task, Supplier<DaemonResponse<T>> runner) {
+    activeTasks.incrementAndGet();
+    log.info("Starting task " + task);
+    DaemonTask previous = DaemonTaskHandler.getTask();
+    SecretSession previousSession = SecretSessionManager.currentSession();
+    DaemonTaskHandler.setTask(task);
+    // The task finds its session through its secret scope, not whatever this thread last used.
+    SecretSessionManager.setSession(null);
+    try {
+      if (!task.start(Thread.currentThread())) {
+        throw new DaemonTaskInterrupted(
+            new IllegalStateException("Task was interrupted before it started"));
+      }
 
-    Interrupter(long timeout, DaemonTask target) {
-      this.startTime = System.currentTimeMillis();
-      this.endTime = this.startTime + timeout;
-      this.target = target;
+      task.success(runner.get());
+    } catch (HalException e) {
+      log.info("Task " + task + " failed with HalException: ", e);
+      task.failure(e);
+    } catch (Exception e) {
+      log.warn("Task " + task + " failed with unexpected reason: ", e);
+      task.failure(e);
+    } finally {
+      task.cleanupResources();
+      task.finish();
+      SecretSessionManager.setSession(previousSession);
+      DaemonTaskHandler.setTask(previous);
+      activeTasks.decrementAndGet();
+
+      log.info("Task " + task + " completed");
+      // Notify after changing state to avoid data-race where threads are notified before
+      // thread appears terminal
+      task.complete();
     }
+  }
 
-    @Override
-    public void run() {
-      long sleepTime = endTime - System.currentTimeMillis();
-      while (sleepTime > 0) {
-        try {
-          Thread.sleep(sleepTime);
-        } catch (InterruptedException ignored) {
-        }
+  private static void timeout(DaemonTask target, long timeout) {
+    switch (target.getState()) {
+      case NOT_STARTED:
+      case RUNNING:
+        log.warn("Interrupting task " + target + " that timed out after " + timeout + " millis.");
+        target.timeout();
+        break;
+      case TIMED_OUT:
+      case INTERRUPTED:
+      case FAILED:
+      case SUCCEEDED:
+        log.info("Interrupter has no work to do, " + target + " already completed.");
+        break;
+    }
 
-        sleepTime = endTime - System.currentTimeMillis();
-      }
+    // In case the task ignores the interrupt, don't keep its info around forever.
+    scheduleTaskInfoDeletion(target.getUuid());
+  }
 
-      switch (target.getState()) {
-        case NOT_STARTED:
-        case RUNNING:
-          log.warn(
-              "Interrupting task "
-                  + target
-                  + " that timed out after "
-                  + (endTime - startTime)
-                  + " millis.");
-          target.timeout();
-          break;
-        case TIMED_OUT:
-        case INTERRUPTED:
-        case FAILED:
-        case SUCCEEDED:
-          log.info("Interrupter has no work to do, " + target + " already completed.");
-          break;
-      }
+  private static void scheduleTaskInfoDeletion(String uuid) {
+    scheduler.schedule(() -> deleteTaskInfo(uuid), DELETE_TASK_INFO_WINDOW, TimeUnit.MILLISECONDS);
+  }
 
-      try {
-        Thread.sleep(DELETE_TASK_INFO_WINDOW);
-      } catch (InterruptedException ignored) {
-      }
+  private static ThreadFactory daemonThreadFactory(String prefix) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return r -> {
+      Thread thread = new Thread(r, prefix + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
 
-      deleteTaskInfo(target.getUuid());
-    }
+  /** Gauges of the tasks this repository is managing. */
+  @Data
+  public static class Stats {
+    int active;
+    int queued;
+    int retained;
   }
 
   @Data
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.tasks.v1;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask.State;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * What changed in a task tree since a client last asked, see {@link DaemonTask#awaitUpdates}. This
+ * lets clients follow a task without re-fetching it (with all its events so far) over and over.
+ */
+@Data
+public class TaskUpdates {
+  // Pass this back to only receive the events added after these updates.
+  private long lastUpdate;
+  // The task and all its children, parents first.
+  private List<TaskUpdate> tasks = new ArrayList<>();
+
+  public TaskUpdates() {}
+
+  /**
+   * @param root is the task to report on, along with its children.
+   * @param sinceUpdate is the update after which events are reported.
+   */
+  public TaskUpdates(DaemonTask root, long sinceUpdate) {
+    root.consumeTaskTree(t -> tasks.add(new TaskUpdate(t, sinceUpdate)));
+  }
+
+  @JsonIgnore
+  public boolean isTerminal() {
+    return !tasks.isEmpty() && tasks.get(0).getState().isTerminal();
+  }
+
+  @Data
+  public static class TaskUpdate {
+    String uuid;
+    String name;
+    State state;
+    DaemonEvent lastEvent;
+    List<DaemonEvent> events = new ArrayList<>();
+
+    public TaskUpdate() {}
+
+    TaskUpdate(DaemonTask task, long sinceUpdate) {
+      this.uuid = task.getUuid();
+      this.name = task.getName();
+      this.state = task.getState();
+
+      List<DaemonEvent> taskEvents = new ArrayList<DaemonEvent>(task.getEvents());
+      if (!taskEvents.isEmpty()) {
+        this.lastEvent = taskEvents.get(taskEvents.size() - 1);
+      }
+
+      for (DaemonEvent event : taskEvents) {
+        if (event.getSequence() > sinceUpdate) {
+          events.add(event);
+        }
+      }
+    }
+  }
+}
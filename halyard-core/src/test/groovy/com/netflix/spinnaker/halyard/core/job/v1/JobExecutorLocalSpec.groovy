@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.job.v1
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class JobExecutorLocalSpec extends Specification {
+  JobExecutorLocal jobExecutor = new JobExecutorLocal()
+
+  void "submitted jobs complete with their output"() {
+    when:
+    JobStatus status = jobExecutor.submit(new JobRequest().setTokenizedCommand(["echo", "hello"])).get(10, TimeUnit.SECONDS)
+
+    then:
+    status.state == JobStatus.State.COMPLETED
+    status.result == JobStatus.Result.SUCCESS
+    status.stdOut.trim() == "hello"
+    !jobExecutor.jobExists(status.id)
+  }
+
+  void "failed jobs complete with a failure"() {
+    when:
+    String jobId = jobExecutor.startJob(new JobRequest().setTokenizedCommand(["sh", "-c", "echo oops >&2; exit 3"]))
+    JobStatus status = jobExecutor.backoffWait(jobId)
+
+    then:
+    status.state == JobStatus.State.COMPLETED
+    status.result == JobStatus.Result.FAILURE
+    status.stdErr.trim() == "oops"
+  }
+
+  void "sequential short jobs don't wait on a fixed poll interval"() {
+    setup:
+    int jobs = 100
+    long start = System.currentTimeMillis()
+
+    when:
+    List<JobStatus> statuses = (1..jobs).collect {
+      jobExecutor.backoffWait(jobExecutor.startJob(new JobRequest().setTokenizedCommand(["true"])))
+    }
+    long elapsed = System.currentTimeMillis() - start
+
+    then:
+    statuses.every { it.result == JobStatus.Result.SUCCESS }
+    // Each job used to cost at least 600ms (a 500ms startup sleep and a 100ms first poll).
+    elapsed < jobs * 600
+  }
+}
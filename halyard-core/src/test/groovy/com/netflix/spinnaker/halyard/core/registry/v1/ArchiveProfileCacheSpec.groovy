@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.registry.v1
+
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.attribute.FileTime
+
+class ArchiveProfileCacheSpec extends Specification {
+  ArchiveProfileCache cache = new ArchiveProfileCache()
+  Path profile
+
+  void setup() {
+    profile = Files.createTempDirectory("profile")
+    Files.createDirectories(profile.resolve("nested"))
+    profile.resolve("settings.js").toFile().text = "a"
+    profile.resolve("nested/packer.json").toFile().text = "{}"
+  }
+
+  void cleanup() {
+    profile.toFile().deleteDir()
+  }
+
+  private static Map<String, String> untar(InputStream stream) {
+    Map<String, String> result = [:]
+    new TarArchiveInputStream(stream).withCloseable { tis ->
+      def entry
+      while ((entry = tis.nextTarEntry) != null) {
+        result[entry.name] = tis.text
+      }
+    }
+    return result
+  }
+
+  void "unchanged directories reuse their archive"() {
+    when:
+    def first = untar(cache.readDirectory(profile, false))
+    def archives = cache.@archives.values()*.file
+    def second = untar(cache.readDirectory(profile, false))
+
+    then:
+    first == ["nested/packer.json": "{}", "settings.js": "a"]
+    second == first
+    cache.@archives.values()*.file == archives
+  }
+
+  void "changed directories are archived again"() {
+    setup:
+    untar(cache.readDirectory(profile, false))
+    Path previous = cache.@archives.values()[0].file
+
+    when:
+    profile.resolve("settings.js").toFile().text = "b"
+    Files.setLastModifiedTime(profile.resolve("settings.js"), FileTime.fromMillis(1000L))
+    def result = untar(cache.readDirectory(profile, false))
+
+    then:
+    result["settings.js"] == "b"
+    !Files.exists(previous)
+  }
+}
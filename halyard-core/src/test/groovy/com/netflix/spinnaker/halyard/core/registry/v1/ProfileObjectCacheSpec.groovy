@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.registry.v1
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class ProfileObjectCacheSpec extends Specification {
+  Path directory
+
+  void setup() {
+    directory = Files.createTempDirectory("profiles")
+  }
+
+  void cleanup() {
+    directory.toFile().deleteDir()
+  }
+
+  private static class FakeSource implements ProfileObjectCache.ObjectSource {
+    Long generation = 1L
+    boolean offline
+    List<String> downloads = []
+
+    @Override
+    Long getGeneration(String objectName) throws IOException {
+      if (offline) {
+        throw new IOException("offline")
+      }
+      return generation
+    }
+
+    @Override
+    void download(String objectName, Long generation, OutputStream output) throws IOException {
+      downloads.add(objectName)
+      output.write("${objectName}@${generation}".bytes)
+    }
+  }
+
+  void "objects are only downloaded again when their generation changes"() {
+    setup:
+    ProfileObjectCache cache = new ProfileObjectCache(directory, 0)
+    FakeSource source = new FakeSource()
+
+    when:
+    cache.get("bom/1.0.0.yml", source)
+    cache.get("bom/1.0.0.yml", source)
+    source.generation = 2L
+    def result = new String(cache.get("bom/1.0.0.yml", source))
+
+    then:
+    source.downloads == ["bom/1.0.0.yml", "bom/1.0.0.yml"]
+    result == "bom/1.0.0.yml@2"
+    cache.stats.revalidations == 1
+  }
+
+  void "objects within their ttl are not revalidated"() {
+    setup:
+    ProfileObjectCache cache = new ProfileObjectCache(directory, 60000)
+    FakeSource source = new FakeSource()
+
+    when:
+    cache.get("versions.yml", source)
+    source.offline = true
+    cache.get("versions.yml", source)
+
+    then:
+    source.downloads == ["versions.yml"]
+    cache.stats.hits == 1
+  }
+
+  void "objects cached on disk are used when the bucket is unreachable"() {
+    setup:
+    FakeSource source = new FakeSource()
+    new ProfileObjectCache(directory, 0).get("clouddriver/1.0.0/clouddriver.yml", source)
+    source.offline = true
+
+    when:
+    def result = new String(
+        new ProfileObjectCache(directory, 0).get("clouddriver/1.0.0/clouddriver.yml", source))
+
+    then:
+    result == "clouddriver/1.0.0/clouddriver.yml@1"
+    source.downloads.size() == 1
+  }
+
+  void "uncached objects fail when the bucket is unreachable"() {
+    setup:
+    FakeSource source = new FakeSource(offline: true)
+
+    when:
+    new ProfileObjectCache(directory, 0).get("versions.yml", source)
+
+    then:
+    thrown(IOException)
+  }
+
+  void "large objects are read from disk"() {
+    setup:
+    ProfileObjectCache cache = new ProfileObjectCache(directory, 60000)
+    FakeSource source = new FakeSource()
+
+    when:
+    Path first = cache.getFile("deck/1.0.0/settings.js.tar.gz", source)
+    Path second = cache.getFile("deck/1.0.0/settings.js.tar.gz", source)
+
+    then:
+    first == second
+    first.startsWith(directory)
+    first.toFile().text == "deck/1.0.0/settings.js.tar.gz@1"
+    source.downloads.size() == 1
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.resource.v1
+
+import spock.lang.Specification
+
+class JinjaJarResourceSpec extends Specification {
+  void "cached templates render with each resource's own bindings"() {
+    when:
+    String first = new JinjaJarResource("/templates/list.yml")
+        .addBinding("name", "first")
+        .addBinding("items", ["a", "b"])
+        .toString()
+    String second = new JinjaJarResource("/templates/list.yml")
+        .addBinding("name", "second")
+        .addBinding("items", ["c"])
+        .toString()
+
+    then:
+    first.contains("name: first")
+    first.contains("- a")
+    first.contains("- b")
+    second.contains("name: second")
+    second.contains("- c")
+    !second.contains("- a")
+  }
+
+  void "missing templates are reported"() {
+    when:
+    new JinjaJarResource("/templates/missing.yml").toString()
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.secrets.v1
+
+import com.netflix.spinnaker.kork.secrets.SecretManager
+import spock.lang.Specification
+
+class ScopedSecretSessionSpec extends Specification {
+  SecretManager secretManager = Mock(SecretManager)
+
+  void "secrets are only decrypted once per session"() {
+    setup:
+    ScopedSecretSession session = new ScopedSecretSession(secretManager, 60000L)
+
+    when:
+    def first = session.decrypt("encrypted:noop!v:a")
+    def second = session.decrypt("encrypted:noop!v:a")
+
+    then:
+    1 * secretManager.decrypt("encrypted:noop!v:a") >> "a"
+    first == "a"
+    second == "a"
+  }
+
+  void "expired secrets are decrypted again"() {
+    setup:
+    ScopedSecretSession session = new ScopedSecretSession(secretManager, 0L)
+
+    when:
+    session.decrypt("encrypted:noop!v:a")
+    session.decrypt("encrypted:noop!v:a")
+
+    then:
+    2 * secretManager.decrypt("encrypted:noop!v:a") >> "a"
+  }
+
+  void "cleared sessions zero the bytes they decrypted"() {
+    setup:
+    ScopedSecretSession session = new ScopedSecretSession(secretManager, 60000L)
+    byte[] decrypted = [1, 2, 3] as byte[]
+    secretManager.decryptAsBytes("encrypted:noop!v:a") >> decrypted
+
+    when:
+    def result = session.decryptAsBytes("encrypted:noop!v:a")
+    session.clearCachedSecrets()
+
+    then:
+    result == [1, 2, 3] as byte[]
+    decrypted == [0, 0, 0] as byte[]
+  }
+
+  void "each session reports its own stats, which add up to the process' stats"() {
+    setup:
+    secretManager.decrypt(_) >> "a"
+    ScopedSecretSession first = new ScopedSecretSession(secretManager, 60000L)
+    ScopedSecretSession second = new ScopedSecretSession(secretManager, 60000L)
+    def before = SecretSessionManager.getStats()
+
+    when:
+    first.decrypt("encrypted:noop!v:a")
+    first.decrypt("encrypted:noop!v:a")
+    second.decrypt("encrypted:noop!v:a")
+
+    then:
+    SecretSessionManager.getStats(first).hits == 1
+    SecretSessionManager.getStats(first).remoteDecrypts == 1
+    SecretSessionManager.getStats(second).hits == 0
+    SecretSessionManager.getStats(second).remoteDecrypts == 1
+    SecretSessionManager.getStats().hits - before.hits == 1
+    SecretSessionManager.getStats().remoteDecrypts - before.remoteDecrypts == 2
+  }
+}
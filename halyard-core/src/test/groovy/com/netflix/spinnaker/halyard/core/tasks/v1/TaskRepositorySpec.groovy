@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.core.tasks.v1
+
+import com.netflix.spinnaker.halyard.core.DaemonResponse
+import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+class TaskRepositorySpec extends Specification {
+  private static void awaitTerminal(DaemonTask task) {
+    synchronized (task) {
+      while (!task.state.terminal) {
+        task.wait(100)
+      }
+    }
+  }
+
+  void "tasks run to completion"() {
+    when:
+    DaemonTask task = TaskRepository.submitTask({ new DaemonResponse<>("done", new ProblemSet()) } as Supplier, "complete", 10000)
+    awaitTerminal(task)
+
+    then:
+    task.state == DaemonTask.State.SUCCEEDED
+    task.response.responseBody == "done"
+    task.runner == null
+    TaskRepository.getTask(task.uuid).is(task)
+  }
+
+  void "tasks are interrupted once they time out"() {
+    when:
+    DaemonTask task = TaskRepository.submitTask({
+      DaemonTaskHandler.safeSleep(10000L)
+      return new DaemonResponse<>("done", new ProblemSet())
+    } as Supplier, "timeout", 100)
+    awaitTerminal(task)
+
+    then:
+    task.state == DaemonTask.State.TIMED_OUT
+  }
+
+  void "task updates only report events since the last update"() {
+    setup:
+    DaemonTask task = TaskRepository.submitTask({
+      DaemonTaskHandler.newStage("Testing")
+      DaemonTaskHandler.message("first")
+      DaemonTaskHandler.message("second")
+      return new DaemonResponse<>("done", new ProblemSet())
+    } as Supplier, "events", 10000)
+    awaitTerminal(task)
+
+    when:
+    TaskUpdates all = task.awaitUpdates(0, 0)
+    TaskUpdates none = task.awaitUpdates(all.lastUpdate, 0)
+
+    then:
+    all.terminal
+    all.tasks[0].events*.message == ["first", "second"]
+    all.tasks[0].lastEvent.message == "second"
+    none.tasks[0].events.isEmpty()
+    none.tasks[0].lastEvent.message == "second"
+  }
+
+  void "clients woken by a task turning terminal see its response"() {
+    setup:
+    DaemonTask task = new DaemonTask("respond", 10000)
+    DaemonResponse seen = null
+    Thread waiter = Thread.start {
+      task.awaitUpdates(0, 10000)
+      seen = task.response
+    }
+    Thread.sleep(100)
+
+    when:
+    task.success(new DaemonResponse<>("done", new ProblemSet()))
+    waiter.join(10000)
+
+    then:
+    seen.responseBody == "done"
+  }
+}
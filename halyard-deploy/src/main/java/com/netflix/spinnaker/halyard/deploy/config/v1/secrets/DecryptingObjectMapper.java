@@ -21,12 +21,14 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Secret;
 import com.netflix.spinnaker.halyard.config.model.v1.node.SecretFile;
 import com.netflix.spinnaker.halyard.core.secrets.v1.SecretSessionManager;
@@ -34,21 +36,39 @@ import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.profile.Profile;
 import com.netflix.spinnaker.kork.secrets.EncryptedSecret;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
-import org.apache.commons.lang3.RandomStringUtils;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * DecryptingObjectMapper serializes (part of) Halyard configurations, decrypting secrets contained
  * in fields annotated with @Secret.
  *
- * <p>It also decrypts the content of secret files, assign them a random name, and store them in
- * {@link Profile} to be serialized later.
+ * <p>It also decrypts the content of secret files, names them after a digest of the field and the
+ * encrypted reference they were read from, and stores them in {@link Profile} to be serialized
+ * later.
  *
  * <p>decryptedOutputDirectory is the path to the decrypted secret files on the service's host.
+ *
+ * <p>Building a mapper throws away Jackson's serializer caches, so rather than constructing one per
+ * call, prefer the mappers returned by {@link #shared}, passing the per-call state to {@link
+ * #convertToMap}.
  */
 public class DecryptingObjectMapper extends ObjectMapper {
+  private static final String SECRET_SESSION_MANAGER_ATTRIBUTE = "secretSessionManager";
+  private static final String PROFILE_ATTRIBUTE = "profile";
+  private static final String DECRYPTED_OUTPUT_DIRECTORY_ATTRIBUTE = "decryptedOutputDirectory";
+
+  // Keyed by decryptAllSecrets, then whether the mapper is relaxed.
+  private static final Map<Boolean, Map<Boolean, DecryptingObjectMapper>> sharedMappers =
+      new ConcurrentHashMap<>();
+
+  private static final int FILE_DIGEST_LENGTH = 16;
 
   protected Profile profile;
   protected Path decryptedOutputDirectory;
@@ -95,6 +115,52 @@ public class DecryptingObjectMapper extends ObjectMapper {
     this.registerModule(module);
   }
 
+  /**
+   * @param decryptAllSecrets is whether secrets not marked alwaysDecrypt are decrypted too.
+   * @param relaxed is whether the mapper is relaxed, see {@link #relax}.
+   * @return a mapper shared by every caller wanting the same mode.
+   */
+  public static DecryptingObjectMapper shared(boolean decryptAllSecrets, boolean relaxed) {
+    return sharedMappers
+        .computeIfAbsent(decryptAllSecrets, k -> new ConcurrentHashMap<>())
+        .computeIfAbsent(
+            relaxed,
+            k -> {
+              DecryptingObjectMapper mapper =
+                  new DecryptingObjectMapper(null, null, null, decryptAllSecrets);
+              return relaxed ? mapper.relax() : mapper;
+            });
+  }
+
+  /**
+   * Converts the value to a map, like {@link #convertValue}, with the given state in place of the
+   * mapper's own.
+   *
+   * @param value is the value to convert.
+   * @param secretSessionManager decrypts the value's secrets.
+   * @param profile is where the content of decrypted secret files is stored.
+   * @param decryptedOutputDirectory is where decrypted secret files live on the service's host.
+   * @return the converted value.
+   */
+  public Map convertToMap(
+      Object value,
+      SecretSessionManager secretSessionManager,
+      Profile profile,
+      Path decryptedOutputDirectory) {
+    ObjectWriter writer =
+        writer()
+            .withAttribute(SECRET_SESSION_MANAGER_ATTRIBUTE, secretSessionManager)
+            .withAttribute(PROFILE_ATTRIBUTE, profile)
+            .withAttribute(DECRYPTED_OUTPUT_DIRECTORY_ATTRIBUTE, decryptedOutputDirectory);
+    try {
+      TokenBuffer buffer = new TokenBuffer(this, false);
+      writer.writeValue(buffer, value);
+      return readValue(buffer.asParser(), Map.class);
+    } catch (IOException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+  }
+
   protected StdScalarSerializer<Object> getSecretSerializer() {
     return new StdScalarSerializer<Object>(String.class, false) {
       @Override
@@ -103,7 +169,7 @@ public class DecryptingObjectMapper extends ObjectMapper {
         if (value != null) {
           String sValue = value.toString();
           if (EncryptedSecret.isEncryptedSecret(sValue)) {
-            gen.writeString(secretSessionManager.decrypt(sValue));
+            gen.writeString(getSecretSessionManager(provider).decrypt(sValue));
           } else {
             gen.writeString(sValue);
           }
@@ -125,12 +191,13 @@ public class DecryptingObjectMapper extends ObjectMapper {
             sValue = annotation.prefix() + sValue;
           }
           if (EncryptedSecret.isEncryptedSecret(sValue) && shouldDecrypt) {
-            // Decrypt the content of the file and store on the profile under a random
-            // generated file name
-            String name = newRandomFilePath(beanPropertyWriter.getName());
-            byte[] bytes = secretSessionManager.decryptAsBytes(sValue);
-            profile.getDecryptedFiles().put(name, bytes);
-            sValue = annotation.prefix() + getCompleteFilePath(name);
+            // Decrypt the content of the file and store on the profile under a name derived
+            // from its reference, so that unchanged secrets render identically every time
+            // without the name revealing anything about the plaintext
+            byte[] bytes = getSecretSessionManager(provider).decryptAsBytes(sValue);
+            String name = newFilePath(beanPropertyWriter.getName(), sValue);
+            getProfile(provider).getDecryptedFiles().put(name, bytes);
+            sValue = annotation.prefix() + getCompleteFilePath(provider, name);
           }
           gen.writeString(sValue);
         }
@@ -144,12 +211,39 @@ public class DecryptingObjectMapper extends ObjectMapper {
     return this;
   }
 
-  protected String newRandomFilePath(String fieldName) {
-    return fieldName + "-" + RandomStringUtils.randomAlphanumeric(5);
+  protected String newFilePath(String fieldName, String encryptedReference) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+
+    StringBuilder result = new StringBuilder(fieldName).append("-");
+    digest.update(fieldName.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+    byte[] hash = digest.digest(encryptedReference.getBytes(StandardCharsets.UTF_8));
+    for (int i = 0; i < FILE_DIGEST_LENGTH / 2; i++) {
+      result.append(String.format("%02x", hash[i]));
+    }
+
+    return result.toString();
+  }
+
+  protected String getCompleteFilePath(SerializerProvider provider, String filename) {
+    Object directory = provider.getAttribute(DECRYPTED_OUTPUT_DIRECTORY_ATTRIBUTE);
+    Path outputDirectory = directory != null ? (Path) directory : decryptedOutputDirectory;
+    return Paths.get(outputDirectory.toString(), filename).toString();
+  }
+
+  protected SecretSessionManager getSecretSessionManager(SerializerProvider provider) {
+    Object manager = provider.getAttribute(SECRET_SESSION_MANAGER_ATTRIBUTE);
+    return manager != null ? (SecretSessionManager) manager : secretSessionManager;
   }
 
-  protected String getCompleteFilePath(String filename) {
-    return Paths.get(decryptedOutputDirectory.toString(), filename).toString();
+  protected Profile getProfile(SerializerProvider provider) {
+    Object attribute = provider.getAttribute(PROFILE_ATTRIBUTE);
+    return attribute != null ? (Profile) attribute : profile;
   }
 
   private boolean isURL(String property) {
@@ -39,6 +39,7 @@ public class BakeDeployer implements Deployer<BakeServiceProvider, DeploymentDet
       GenerateService.ResolvedConfiguration resolvedConfiguration,
       List<SpinnakerService.Type> serviceTypes,
       boolean waitForCompletion,
+      boolean skipUnchangedServices,
       Optional<Integer> waitForCompletionTimeoutMinutes) {
     List<BakeService> enabledServices =
         serviceProvider.getPrioritizedBakeableServices(serviceTypes).stream()
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.deployment.v1;
+
+import com.netflix.spinnaker.halyard.core.DaemonResponse;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted;
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.DistributedService.DeployPriority;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Deploys a set of services as child tasks of the current task, in dependency order.
+ *
+ * <p>The services form a DAG: each depends on the services it declares, or if it declares none, on
+ * every service in the next higher {@link DeployPriority} being deployed. A service is started as
+ * soon as everything it depends on has succeeded, higher priorities first, with at most the given
+ * number running at once. Children are reaped in the order they complete, and the first one to fail
+ * interrupts the others and fails the deploy without starting anything else.
+ *
+ * <p>The time each service took is recorded, and the critical path through the DAG (the chain of
+ * services that determined how long the deploy took) is reported once it is done.
+ */
+@Slf4j
+public class DeployScheduler {
+  // How often to check on children that were interrupted before they got to run.
+  private static final long POLL_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+  private final int parallelism;
+  private final Map<String, Step> steps = new LinkedHashMap<>();
+  private Long timeoutMillis;
+
+  /** @param parallelism is the most services deployed at once. */
+  public DeployScheduler(int parallelism) {
+    this.parallelism = Math.max(parallelism, 1);
+  }
+
+  /**
+   * @param timeoutMillis is how long deploying every service may take in all. Each service is given
+   *     whatever is left of it when it starts, rather than the current task's timeout.
+   */
+  public DeployScheduler setTimeoutMillis(long timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+    return this;
+  }
+
+  public DeployScheduler schedule(String name, DeployPriority priority, Runnable deploy) {
+    return schedule(name, priority, Collections.emptyList(), deploy);
+  }
+
+  /**
+   * @param name is the name of the service, as other services declare their dependencies.
+   * @param priority orders services that declare no dependencies.
+   * @param dependencies are the services this one needs deployed first. Services that aren't being
+   *     deployed are ignored.
+   * @param deploy deploys the service, on the service's own child task.
+   */
+  public DeployScheduler schedule(
+      String name, DeployPriority priority, Collection<String> dependencies, Runnable deploy) {
+    if (steps.containsKey(name)) {
+      throw new IllegalArgumentException("Service " + name + " is already scheduled");
+    }
+
+    steps.put(name, new Step(name, priority, new ArrayList<>(dependencies), deploy));
+    return this;
+  }
+
+  /** Deploys every scheduled service, returning once all have succeeded. */
+  public void run() {
+    if (steps.isEmpty()) {
+      return;
+    }
+
+    resolveDependencies();
+
+    Comparator<Step> order = (s1, s2) -> s2.priority.compareTo(s1.priority);
+    PriorityQueue<Step> ready = new PriorityQueue<>(order.thenComparingInt(s -> s.index));
+    steps.values().stream().filter(s -> s.remaining == 0).forEach(ready::add);
+
+    BlockingQueue<Step> completed = new LinkedBlockingQueue<>();
+    List<Step> running = new LinkedList<>();
+    int finished = 0;
+    long start = System.currentTimeMillis();
+    Long deadline = timeoutMillis != null ? start + timeoutMillis : null;
+    try {
+      while (finished < steps.size()) {
+        while (running.size() < parallelism && !ready.isEmpty()) {
+          Step step = ready.poll();
+          step.task = submit(step, completed, deadline);
+          running.add(step);
+        }
+
+        if (running.isEmpty()) {
+          throw new IllegalStateException(
+              "The dependencies between "
+                  + steps.values().stream()
+                      .filter(s -> s.task == null)
+                      .map(s -> s.name)
+                      .collect(Collectors.joining(", "))
+                  + " form a cycle");
+        }
+
+        Step step = awaitCompletion(running, completed);
+        running.remove(step);
+        finished++;
+        DaemonTaskHandler.reapChild(step.task);
+        log.info(
+            "Deployed "
+                + step.name
+                + " in "
+                + (step.endMillis - step.startMillis)
+                + " millis, after waiting "
+                + (step.startMillis - step.readyMillis)
+                + " millis for a free slot");
+
+        for (Step dependent : step.dependents) {
+          if (--dependent.remaining == 0) {
+            dependent.readyMillis = System.currentTimeMillis();
+            ready.add(dependent);
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      running.forEach(s -> s.task.interrupt());
+      throw e;
+    }
+
+    DaemonTaskHandler.message(
+        "Deployed "
+            + steps.size()
+            + " services in "
+            + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - start)
+            + " seconds, critical path: "
+            + criticalPath());
+  }
+
+  private void resolveDependencies() {
+    List<Step> byPriority = new ArrayList<>(steps.values());
+    byPriority.sort((s1, s2) -> s2.priority.compareTo(s1.priority));
+
+    long now = System.currentTimeMillis();
+    int index = 0;
+    for (Step step : steps.values()) {
+      step.index = index++;
+      step.readyMillis = now;
+      if (!step.declared.isEmpty()) {
+        step.dependencies =
+            step.declared.stream()
+                .map(steps::get)
+                .filter(s -> s != null && s != step)
+                .distinct()
+                .collect(Collectors.toList());
+      } else {
+        // Everything in the closest higher priority, which in turn waits on the one above it.
+        DeployPriority higher =
+            byPriority.stream()
+                .map(s -> s.priority)
+                .filter(p -> p.compareTo(step.priority) > 0)
+                .reduce((p1, p2) -> p2)
+                .orElse(null);
+        step.dependencies =
+            higher == null
+                ? new ArrayList<>()
+                : byPriority.stream()
+                    .filter(s -> s.priority.compareTo(higher) == 0)
+                    .collect(Collectors.toList());
+      }
+
+      step.remaining = step.dependencies.size();
+      step.dependencies.forEach(d -> d.dependents.add(step));
+    }
+  }
+
+  private DaemonTask submit(Step step, BlockingQueue<Step> completed, Long deadline) {
+    DaemonResponse.StaticRequestBuilder<Void> builder =
+        new DaemonResponse.StaticRequestBuilder<>(
+            () -> {
+              step.startMillis = System.currentTimeMillis();
+              try {
+                step.deploy.run();
+              } finally {
+                step.endMillis = System.currentTimeMillis();
+                completed.add(step);
+              }
+
+              return null;
+            });
+
+    String name = "Deploy " + step.name;
+    // Once the deadline has passed, the child times out straight away, timing out the deploy.
+    return deadline != null
+        ? DaemonTaskHandler.submitTask(
+            builder::build, name, Math.max(deadline - System.currentTimeMillis(), 0))
+        : DaemonTaskHandler.submitTask(builder::build, name);
+  }
+
+  /** Waits for whichever running service completes first. */
+  private static Step awaitCompletion(List<Step> running, BlockingQueue<Step> completed) {
+    try {
+      while (true) {
+        Step step = completed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (step != null) {
+          return step;
+        }
+
+        // A child interrupted before it started never runs its deploy, so never reports back.
+        for (Step candidate : running) {
+          if (candidate.task.getState().isTerminal() && candidate.endMillis == 0) {
+            candidate.startMillis = candidate.endMillis = System.currentTimeMillis();
+            return candidate;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      throw new DaemonTaskInterrupted("Interrupted while waiting on deployments", e);
+    }
+  }
+
+  private String criticalPath() {
+    Step last =
+        steps.values().stream().max(Comparator.comparingLong(s -> s.endMillis)).orElse(null);
+    LinkedList<String> path = new LinkedList<>();
+    while (last != null) {
+      path.addFirst(
+          last.name
+              + " ("
+              + TimeUnit.MILLISECONDS.toSeconds(last.endMillis - last.startMillis)
+              + "s)");
+      last =
+          last.dependencies.stream().max(Comparator.comparingLong(s -> s.endMillis)).orElse(null);
+    }
+
+    return String.join(" -> ", path);
+  }
+
+  private static class Step {
+    final String name;
+    final DeployPriority priority;
+    final List<String> declared;
+    final Runnable deploy;
+    final List<Step> dependents = new ArrayList<>();
+    List<Step> dependencies;
+    int index;
+    int remaining;
+    DaemonTask task;
+    long readyMillis;
+    volatile long startMillis;
+    volatile long endMillis;
+
+    Step(String name, DeployPriority priority, List<String> declared, Runnable deploy) {
+      this.name = name;
+      this.priority = priority;
+      this.declared = declared;
+      this.deploy = deploy;
+    }
+  }
+}
@@ -32,6 +32,7 @@ public interface Deployer<S extends SpinnakerServiceProvider<D>, D extends Deplo
       ResolvedConfiguration resolvedConfiguration,
       List<SpinnakerService.Type> serviceTypes,
       boolean waitForCompletion,
+      boolean skipUnchangedServices,
       Optional<Integer> waitForCompletionTimeoutMinutes);
 
   void rollback(
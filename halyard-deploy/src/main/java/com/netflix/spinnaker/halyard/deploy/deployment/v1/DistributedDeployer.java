@@ -56,6 +56,10 @@ public class DistributedDeployer<T extends Account>
   @Value("${deploy.max-remaining-server-groups:2}")
   private Integer MAX_REMAINING_SERVER_GROUPS;
 
+  /** The most services red/black deployed at once, see {@link DeployScheduler}. */
+  @Value("${halyard.deploy.parallelism:8}")
+  int parallelism;
+
   @Override
   public void rollback(
       DistributedServiceProvider<T> serviceProvider,
@@ -195,10 +199,12 @@ public class DistributedDeployer<T extends Account>
       ResolvedConfiguration resolvedConfiguration,
       List<SpinnakerService.Type> serviceTypes,
       boolean waitForCompletion,
+      boolean skipUnchangedServices,
       Optional<Integer> waitForCompletionTimeoutMinutes) {
     SpinnakerRuntimeSettings runtimeSettings = resolvedConfiguration.getRuntimeSettings();
 
     DaemonTaskHandler.newStage("Deploying Spinnaker");
+    DeployScheduler scheduler = new DeployScheduler(parallelism);
     // First deploy all services not owned by Spinnaker
     for (DistributedService distributedService :
         serviceProvider.getPrioritizedDistributedServices(serviceTypes)) {
@@ -217,46 +223,39 @@ public class DistributedDeployer<T extends Account>
         deployServiceManually(
             deploymentDetails, resolvedConfiguration, distributedService, safeToUpdate);
       } else {
-        DaemonResponse.StaticRequestBuilder<Void> builder =
-            new DaemonResponse.StaticRequestBuilder<>(
-                () -> {
-                  if (runningServiceDetails.getLatestEnabledVersion() == null) {
-                    DaemonTaskHandler.newStage(
-                        "Deploying " + distributedService.getServiceName() + " via provider API");
-                    deployServiceManually(
-                        deploymentDetails, resolvedConfiguration, distributedService, safeToUpdate);
-                  } else {
-                    DaemonTaskHandler.newStage(
-                        "Deploying " + distributedService.getServiceName() + " via red/black");
-                    try {
-                      Orca orca =
-                          serviceProvider
-                              .getDeployableService(
-                                  SpinnakerService.Type.ORCA_BOOTSTRAP, Orca.class)
-                              .connectToPrimaryService(deploymentDetails, runtimeSettings);
-                      deployServiceWithOrca(
-                          deploymentDetails, resolvedConfiguration, orca, distributedService);
-                    } catch (RetrofitError e) {
-                      String message =
-                          ((Map<String, String>) e.getBodyAs(Map.class)).get("message");
-                      throw new HalException(
-                          Problem.Severity.FATAL,
-                          "Unable to deploy service with Orca " + e + ": " + message,
-                          e);
-                    }
-                  }
-
-                  return null;
-                });
-        DaemonTaskHandler.submitTask(
-            builder::build, "Deploy " + distributedService.getServiceName());
+        scheduler.schedule(
+            distributedService.getServiceName(),
+            distributedService.getDeployPriority(),
+            () -> {
+              if (runningServiceDetails.getLatestEnabledVersion() == null) {
+                DaemonTaskHandler.newStage(
+                    "Deploying " + distributedService.getServiceName() + " via provider API");
+                deployServiceManually(
+                    deploymentDetails, resolvedConfiguration, distributedService, safeToUpdate);
+              } else {
+                DaemonTaskHandler.newStage(
+                    "Deploying " + distributedService.getServiceName() + " via red/black");
+                try {
+                  Orca orca =
+                      serviceProvider
+                          .getDeployableService(SpinnakerService.Type.ORCA_BOOTSTRAP, Orca.class)
+                          .connectToPrimaryService(deploymentDetails, runtimeSettings);
+                  deployServiceWithOrca(
+                      deploymentDetails, resolvedConfiguration, orca, distributedService);
+                } catch (RetrofitError e) {
+                  String message = ((Map<String, String>) e.getBodyAs(Map.class)).get("message");
+                  throw new HalException(
+                      Problem.Severity.FATAL,
+                      "Unable to deploy service with Orca " + e + ": " + message,
+                      e);
+                }
+              }
+            });
       }
     }
 
     DaemonTaskHandler.message("Waiting on deployments to complete");
-    DaemonTaskHandler.reduceChildren(null, (t1, t2) -> null, (t1, t2) -> null)
-        .getProblemSet()
-        .throwifSeverityExceeds(Problem.Severity.WARNING);
+    scheduler.run();
 
     DistributedService<Orca, T> orca =
         serviceProvider.getDeployableService(SpinnakerService.Type.ORCA);
@@ -19,9 +19,7 @@
 package com.netflix.spinnaker.halyard.deploy.deployment.v1;
 
 import com.netflix.spinnaker.halyard.config.model.v1.providers.kubernetes.KubernetesAccount;
-import com.netflix.spinnaker.halyard.core.DaemonResponse;
 import com.netflix.spinnaker.halyard.core.RemoteAction;
-import com.netflix.spinnaker.halyard.core.problem.v1.Problem;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
 import com.netflix.spinnaker.halyard.deploy.services.v1.GenerateService;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.SpinnakerRuntimeSettings;
@@ -31,13 +29,22 @@ import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerServic
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.SidecarService;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubectlServiceProvider;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubernetesV2Executor;
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubernetesV2ReadinessTracker;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubernetesV2Service;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubernetesV2Utils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -45,6 +52,10 @@ public class KubectlDeployer
     implements Deployer<KubectlServiceProvider, AccountDeploymentDetails<KubernetesAccount>> {
   @Autowired KubernetesV2Utils kubernetesV2Utils;
 
+  /** The most services waited on at once, see {@link DeployScheduler}. */
+  @Value("${halyard.deploy.parallelism:8}")
+  int parallelism;
+
   @Override
   public RemoteAction deploy(
       KubectlServiceProvider serviceProvider,
@@ -52,7 +63,11 @@ public class KubectlDeployer
       GenerateService.ResolvedConfiguration resolvedConfiguration,
       List<SpinnakerService.Type> serviceTypes,
       boolean waitForCompletion,
+      boolean skipUnchangedServices,
       Optional<Integer> waitForCompletionTimeoutMinutes) {
+    KubernetesAccount account = deploymentDetails.getAccount();
+    KubernetesV2Executor executor = newExecutor(account);
+    Map<String, NamespaceBatch> batches = new LinkedHashMap<>();
     List<KubernetesV2Service> services = serviceProvider.getServicesByPriority(serviceTypes);
     services.stream()
         .forEach(
@@ -76,65 +91,149 @@ public class KubectlDeployer
                 return;
               }
 
-              DaemonResponse.StaticRequestBuilder<Void> builder =
-                  new DaemonResponse.StaticRequestBuilder<>(
-                      () -> {
-                        DaemonTaskHandler.newStage(
-                            "Deploying " + service.getServiceName() + " with kubectl");
-
-                        KubernetesAccount account = deploymentDetails.getAccount();
-                        KubernetesV2Executor executor =
-                            new KubernetesV2Executor(
-                                DaemonTaskHandler.getJobExecutor(), account, kubernetesV2Utils);
-                        String namespaceDefinition =
-                            service.getNamespaceYaml(resolvedConfiguration);
-                        String serviceDefinition = service.getServiceYaml(resolvedConfiguration);
-
-                        if (!executor.exists(namespaceDefinition)) {
-                          executor.apply(namespaceDefinition);
-                        }
-
-                        if (!executor.exists(serviceDefinition)) {
-                          executor.apply(serviceDefinition);
-                        }
-
-                        String resourceDefinition =
-                            service.getResourceYaml(
-                                executor, deploymentDetails, resolvedConfiguration);
-                        if (((SpinnakerService) service).getType().equals(Type.REDIS)
-                            && executor.exists(resourceDefinition)) {
-                          // We do not want to bounce the Redis pod because user data will be lost.
-                          DaemonTaskHandler.message(
-                              "Redis deployment already exists... not redeploying...");
-                        } else {
-                          DaemonTaskHandler.message(
-                              "Running kubectl apply on the resource definition...");
-                          executor.apply(resourceDefinition);
-
-                          if (waitForCompletion) {
-                            DaemonTaskHandler.message("Waiting for service to be ready...");
-                            while (!executor.isReady(
-                                service.getNamespace(settings), service.getServiceName())) {
-                              DaemonTaskHandler.safeSleep(TimeUnit.SECONDS.toMillis(5));
-                            }
-                          }
-                        }
-                        return null;
-                      });
-              DaemonTaskHandler.submitTask(
-                  builder::build,
-                  "Deploy " + service.getServiceName(),
-                  TimeUnit.MINUTES.toMillis(waitForCompletionTimeoutMinutes.orElse(10)));
+              // Secrets staged by getResourceYaml are collected rather than replaced one by one,
+              // so they can be applied in the same kubectl call as the resources using them.
+              ServiceManifests manifests = new ServiceManifests();
+              manifests.service = service;
+              manifests.namespaceDefinition = service.getNamespaceYaml(resolvedConfiguration);
+              manifests.serviceDefinition = service.getServiceYaml(resolvedConfiguration);
+              manifests.resourceDefinition =
+                  service.getResourceYaml(
+                      executor.deferring(manifests.secretDefinitions),
+                      deploymentDetails,
+                      resolvedConfiguration);
+
+              batches
+                  .computeIfAbsent(service.getNamespace(settings), k -> new NamespaceBatch())
+                  .services
+                  .add(manifests);
             });
 
-    DaemonTaskHandler.message("Waiting on deployments to complete");
-    DaemonTaskHandler.reduceChildren(null, (t1, t2) -> null, (t1, t2) -> null)
-        .getProblemSet()
-        .throwifSeverityExceeds(Problem.Severity.WARNING);
+    batches.forEach(
+        (namespace, batch) -> {
+          DaemonTaskHandler.newStage("Deploying to namespace " + namespace + " with kubectl");
+
+          List<String> checked = new ArrayList<>();
+          for (ServiceManifests manifests : batch.services) {
+            checked.add(manifests.namespaceDefinition);
+            checked.add(manifests.serviceDefinition);
+            if (manifests.isRedis()) {
+              checked.add(manifests.resourceDefinition);
+            }
+          }
+
+          Set<String> existing = executor.getExisting(namespace, checked);
+          Map<String, String> liveDigests =
+              skipUnchangedServices ? executor.getConfigDigests(namespace) : new HashMap<>();
+          Set<String> included = new HashSet<>();
+          List<String> definitions = new ArrayList<>();
+          for (ServiceManifests manifests : batch.services) {
+            for (String definition :
+                Arrays.asList(manifests.namespaceDefinition, manifests.serviceDefinition)) {
+              String key = executor.resourceKey(definition);
+              if (!existing.contains(key) && included.add(key)) {
+                definitions.add(definition);
+              }
+            }
+          }
+
+          for (ServiceManifests manifests : batch.services) {
+            String serviceName = manifests.service.getServiceName();
+            String digest = kubernetesV2Utils.configDigest(manifests.resourceDefinition);
+            if (manifests.isRedis()
+                && existing.contains(executor.resourceKey(manifests.resourceDefinition))) {
+              // We do not want to bounce the Redis pod because user data will be lost.
+              DaemonTaskHandler.message("Redis deployment already exists... not redeploying...");
+            } else if (digest.equals(liveDigests.get(serviceName))) {
+              DaemonTaskHandler.message(serviceName + " is unchanged... not redeploying...");
+            } else {
+              definitions.addAll(manifests.secretDefinitions);
+              definitions.add(
+                  kubernetesV2Utils.annotate(
+                      manifests.resourceDefinition,
+                      KubernetesV2Executor.CONFIG_DIGEST_ANNOTATION,
+                      digest));
+              batch.deployed.add(manifests);
+            }
+          }
+
+          if (definitions.isEmpty()) {
+            DaemonTaskHandler.message("Nothing changed in namespace " + namespace);
+            return;
+          }
+
+          DaemonTaskHandler.message(
+              "Running kubectl apply on " + definitions.size() + " resource definitions...");
+          List<String> applied = executor.applyAll(definitions);
+          DaemonTaskHandler.message("Applied " + String.join(", ", applied));
+
+          // Only started once the deployments are applied, so that their rollouts are tracked
+          // rather than the state they were in before.
+          if (waitForCompletion && !batch.deployed.isEmpty()) {
+            batch.readiness = executor.watchReadiness(namespace);
+          }
+        });
+
+    try {
+      if (waitForCompletion) {
+        DeployScheduler scheduler =
+            new DeployScheduler(parallelism)
+                .setTimeoutMillis(
+                    TimeUnit.MINUTES.toMillis(waitForCompletionTimeoutMinutes.orElse(10)));
+        batches.forEach(
+            (namespace, batch) ->
+                batch.deployed.forEach(
+                    (manifests) -> {
+                      KubernetesV2Service service = manifests.service;
+                      scheduler.schedule(
+                          service.getServiceName(),
+                          service.getDeployPriority(),
+                          () -> {
+                            DaemonTaskHandler.newStage(
+                                "Waiting for " + service.getServiceName() + " to be ready");
+                            long millis = batch.readiness.awaitReady(service.getServiceName());
+                            DaemonTaskHandler.message(
+                                service.getServiceName()
+                                    + " was ready after "
+                                    + TimeUnit.MILLISECONDS.toSeconds(millis)
+                                    + " seconds");
+                          });
+                    }));
+
+        DaemonTaskHandler.message("Waiting on deployments to complete");
+        scheduler.run();
+      }
+    } finally {
+      batches.values().stream()
+          .filter(b -> b.readiness != null)
+          .forEach(b -> b.readiness.close());
+    }
 
     return new RemoteAction();
   }
 
+  KubernetesV2Executor newExecutor(KubernetesAccount account) {
+    return new KubernetesV2Executor(DaemonTaskHandler.getJobExecutor(), account, kubernetesV2Utils);
+  }
+
+  private static class NamespaceBatch {
+    final List<ServiceManifests> services = new ArrayList<>();
+    final List<ServiceManifests> deployed = new ArrayList<>();
+    KubernetesV2ReadinessTracker readiness;
+  }
+
+  private static class ServiceManifests {
+    KubernetesV2Service service;
+    String namespaceDefinition;
+    String serviceDefinition;
+    String resourceDefinition;
+    final List<String> secretDefinitions = new ArrayList<>();
+
+    boolean isRedis() {
+      return ((SpinnakerService) service).getType().equals(Type.REDIS);
+    }
+  }
+
   @Override
   public void rollback(
       KubectlServiceProvider serviceProvider,
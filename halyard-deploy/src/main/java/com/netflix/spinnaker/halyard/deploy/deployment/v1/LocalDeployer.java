@@ -46,6 +46,7 @@ public class LocalDeployer implements Deployer<LocalServiceProvider, DeploymentD
       GenerateService.ResolvedConfiguration resolvedConfiguration,
       List<SpinnakerService.Type> serviceTypes,
       boolean waitForCompletion,
+      boolean skipUnchangedServices,
       Optional<Integer> waitForCompletionTimeoutMinutes) {
     List<LocalService> enabledServices =
         serviceProvider.getLocalServices(serviceTypes).stream()
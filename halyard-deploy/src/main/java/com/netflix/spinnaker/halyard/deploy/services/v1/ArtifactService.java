@@ -41,6 +41,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 import org.yaml.snakeyaml.Yaml;
 
@@ -49,7 +50,7 @@ public class ArtifactService {
   @Autowired(required = false)
   GoogleWriteableProfileRegistry googleWriteableProfileRegistry;
 
-  @Autowired Yaml yamlParser;
+  @Autowired ApplicationContext applicationContext;
 
   @Autowired RelaxedObjectMapper relaxedObjectMapper;
 
@@ -59,6 +60,10 @@ public class ArtifactService {
 
   @Autowired ArtifactSourcesConfig artifactSourcesConfig;
 
+  private Yaml getYamlParser() {
+    return applicationContext.getBean(Yaml.class);
+  }
+
   BillOfMaterials getBillOfMaterials(String deploymentName) {
     DeploymentConfiguration deploymentConfiguration =
         deploymentService.getDeploymentConfiguration(deploymentName);
@@ -171,7 +176,7 @@ public class ArtifactService {
     }
 
     googleWriteableProfileRegistry.writeVersions(
-        yamlParser.dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
+        getYamlParser().dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
   }
 
   public void publishVersion(Version version) {
@@ -187,7 +192,7 @@ public class ArtifactService {
     versionsCollection.getVersions().add(version);
 
     googleWriteableProfileRegistry.writeVersions(
-        yamlParser.dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
+        getYamlParser().dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
   }
 
   public void publishLatestSpinnaker(String latestSpinnaker) {
@@ -211,7 +216,7 @@ public class ArtifactService {
     versionsCollection.setLatestSpinnaker(latestSpinnaker);
 
     googleWriteableProfileRegistry.writeVersions(
-        yamlParser.dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
+        getYamlParser().dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
   }
 
   public void publishLatestHalyard(String latestHalyard) {
@@ -227,7 +232,7 @@ public class ArtifactService {
     versionsCollection.setLatestHalyard(latestHalyard);
 
     googleWriteableProfileRegistry.writeVersions(
-        yamlParser.dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
+        getYamlParser().dump(relaxedObjectMapper.convertValue(versionsCollection, Map.class)));
   }
 
   public void writeBom(String bomPath) {
@@ -241,7 +246,9 @@ public class ArtifactService {
 
     try {
       bomContents = IOUtils.toString(new FileInputStream(bomPath));
-      bom = relaxedObjectMapper.convertValue(yamlParser.load(bomContents), BillOfMaterials.class);
+      bom =
+          relaxedObjectMapper.convertValue(
+              getYamlParser().load(bomContents), BillOfMaterials.class);
       version = bom.getVersion();
     } catch (IOException e) {
       throw new HalException(
@@ -269,7 +276,7 @@ public class ArtifactService {
     try {
       bom =
           relaxedObjectMapper.convertValue(
-              yamlParser.load(IOUtils.toString(new FileInputStream(bomPath))),
+              getYamlParser().load(IOUtils.toString(new FileInputStream(bomPath))),
               BillOfMaterials.class);
     } catch (IOException e) {
       throw new HalException(
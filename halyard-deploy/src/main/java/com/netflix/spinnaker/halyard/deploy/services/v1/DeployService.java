@@ -301,6 +301,7 @@ public class DeployService {
     DeploymentDetails deploymentDetails = getDeploymentDetails(deploymentConfiguration);
 
     boolean waitForCompletion = deployOptions.contains(DeployOption.WAIT_FOR_COMPLETION);
+    boolean skipUnchangedServices = deployOptions.contains(DeployOption.SKIP_UNCHANGED_SERVICES);
     RemoteAction action =
         deployer.deploy(
             serviceProvider,
@@ -308,6 +309,7 @@ public class DeployService {
             resolvedConfiguration,
             serviceTypes,
             waitForCompletion,
+            skipUnchangedServices,
             waitForCompletionTimeoutMinutes);
     halconfigParser.backupConfig();
 
@@ -18,12 +18,15 @@ package com.netflix.spinnaker.halyard.deploy.services.v1;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.netflix.spinnaker.halyard.config.config.v1.HalconfigDirectoryStructure;
+import com.netflix.spinnaker.halyard.config.config.v1.HalconfigParser;
+import com.netflix.spinnaker.halyard.config.config.v1.RelaxedObjectMapper;
 import com.netflix.spinnaker.halyard.config.model.v1.node.DeploymentConfiguration;
 import com.netflix.spinnaker.halyard.config.problem.v1.ConfigProblemBuilder;
 import com.netflix.spinnaker.halyard.config.services.v1.DeploymentService;
 import com.netflix.spinnaker.halyard.core.error.v1.HalException;
 import com.netflix.spinnaker.halyard.core.problem.v1.Problem.Severity;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted;
 import com.netflix.spinnaker.halyard.deploy.config.v1.ConfigParser;
 import com.netflix.spinnaker.halyard.deploy.deployment.v1.DeploymentDetails;
 import com.netflix.spinnaker.halyard.deploy.deployment.v1.ServiceProviderFactory;
@@ -34,20 +37,31 @@ import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerServic
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerServiceProvider;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -63,6 +77,15 @@ public class GenerateService {
 
   @Autowired private ConfigParser configParser;
 
+  @Autowired private RelaxedObjectMapper relaxedObjectMapper;
+
+  @Autowired private HalconfigParser halconfigParser;
+
+  @Value("${halyard.generate.parallelism:8}")
+  int parallelism;
+
+  private ExecutorService executor;
+
   public ResolvedConfiguration generateConfigWithOptionalServices(
       String deploymentName, List<SpinnakerService.Type> serviceTypes) {
     DeploymentConfiguration deploymentConfiguration =
@@ -85,8 +108,10 @@ public class GenerateService {
    *
    * <p>This involves a few steps:
    *
-   * <p>1. Clear out old config generated in a prior run. 2. Generate configuration using the
-   * halconfig as the source of truth, while collecting files needed by the deployment.
+   * <p>1. Read the manifest of config staged by a prior run. 2. Generate configuration using the
+   * halconfig as the source of truth, while collecting files needed by the deployment. 3. Stage
+   * only the profiles whose contents changed, remove those no longer generated, and record which
+   * services' output changed.
    *
    * @param deploymentName is the deployment whose config to generate
    * @param services is the list of services to generate configs for
@@ -112,20 +137,14 @@ public class GenerateService {
         serviceProvider.buildRuntimeSettings(deploymentConfiguration);
 
     // Step 1.
-    try {
-      FileUtils.deleteDirectory(spinnakerStaging);
-    } catch (IOException e) {
-      throw new HalException(
-          new ConfigProblemBuilder(
-                  Severity.FATAL, "Unable to clear old spinnaker config: " + e.getMessage() + ".")
-              .build());
-    }
+    StagingManifest manifest = StagingManifest.read(relaxedObjectMapper, spinnakerStaging.toPath());
+    Set<String> previouslyStaged = manifest.stagedProfileNames();
 
     Path userProfilePath = halconfigDirectoryStructure.getUserProfilePath(deploymentName);
     List<String> userProfileNames = aggregateProfilesInPath(userProfilePath.toString(), "");
 
     // Step 2.
-    Map<SpinnakerService.Type, Map<String, Profile>> serviceProfiles = new HashMap<>();
+    List<ServiceGeneration> generations = new ArrayList<>();
     for (SpinnakerService service : serviceProvider.getServices()) {
       boolean isDesiredService =
           services.stream().filter(s -> s.equals(service.getType())).count() > 0;
@@ -136,50 +155,128 @@ public class GenerateService {
 
       ServiceSettings settings = runtimeSettings.getServiceSettings(service);
       if (settings == null || !settings.getEnabled()) {
+        manifest.remove(service.getType());
         continue;
       }
 
-      List<Profile> profiles = service.getProfiles(deploymentConfiguration, runtimeSettings);
+      generations.add(
+          new ServiceGeneration(
+              service, deploymentName, runtimeSettings, userProfilePath, userProfileNames));
+    }
 
-      String pluralModifier = profiles.size() == 1 ? "" : "s";
-      String profileMessage = "Generated " + profiles.size() + " profile" + pluralModifier;
-      Map<String, Profile> outputProfiles = processProfiles(spinnakerStaging, profiles);
+    // Profile factories edit the config they are handed (e.g. to leave out bootstrap accounts), so
+    // each service is generated from its own copy of the halconfig.
+    for (ServiceGeneration generation : generations) {
+      generation.future =
+          getExecutor()
+              .submit(DaemonTaskHandler.withCurrentTask(halconfigParser.isolated(generation)));
+    }
 
-      List<Profile> customProfiles =
-          userProfileNames.stream()
-              .map(
-                  s ->
-                      (Optional<Profile>)
-                          service.customProfile(
-                              deploymentConfiguration,
-                              runtimeSettings,
-                              Paths.get(userProfilePath.toString(), s),
-                              s))
-              .filter(Optional::isPresent)
-              .map(Optional::get)
-              .collect(Collectors.toList());
+    // Results are collected in service order, so that when services share a profile name the
+    // last one to generate it wins, as it always has.
+    Map<SpinnakerService.Type, Map<String, Profile>> serviceProfiles = new HashMap<>();
+    Map<String, Profile> stagedProfiles = new HashMap<>();
+    Set<SpinnakerService.Type> changedServices = new HashSet<>();
+    try {
+      for (ServiceGeneration generation : generations) {
+        generation.await();
+        DaemonTaskHandler.message(generation.getMessage());
+
+        Map<String, Profile> outputProfiles = toProfileMap(generation.profiles);
+        mergeProfilesAndPreserveProperties(outputProfiles, toProfileMap(generation.customProfiles));
+
+        SpinnakerService.Type type = generation.service.getType();
+        serviceProfiles.put(type, outputProfiles);
+        stagedProfiles.putAll(outputProfiles);
+        if (manifest.update(type, outputProfiles)) {
+          changedServices.add(type);
+        }
+      }
+    } catch (InterruptedException e) {
+      generations.forEach(g -> g.future.cancel(true));
+      throw new DaemonTaskInterrupted("Interrupted during profile generation", e);
+    } catch (RuntimeException e) {
+      generations.forEach(g -> g.future.cancel(true));
+      throw e;
+    }
 
-      pluralModifier = customProfiles.size() == 1 ? "" : "s";
-      profileMessage +=
-          " and discovered "
-              + customProfiles.size()
-              + " custom profile"
-              + pluralModifier
-              + " for "
-              + service.getCanonicalName();
-      DaemonTaskHandler.message(profileMessage);
-      mergeProfilesAndPreserveProperties(
-          outputProfiles, processProfiles(spinnakerStaging, customProfiles));
+    // Step 3.
+    int written = 0;
+    Set<String> stale = new HashSet<>(previouslyStaged);
+    stale.removeAll(manifest.stagedProfileNames());
+    try {
+      for (Profile profile : stagedProfiles.values()) {
+        if (stageProfile(spinnakerStaging, profile)) {
+          written++;
+        }
+      }
 
-      serviceProfiles.put(service.getType(), outputProfiles);
+      for (String name : stale) {
+        Files.deleteIfExists(Paths.get(spinnakerStaging.toString(), name));
+      }
+
+      manifest.write(relaxedObjectMapper, spinnakerStaging.toPath());
+    } catch (IOException e) {
+      throw new HalException(
+          new ConfigProblemBuilder(
+                  Severity.FATAL, "Unable to stage spinnaker config: " + e.getMessage() + ".")
+              .build());
     }
 
+    DaemonTaskHandler.message(
+        "Staged "
+            + written
+            + " changed profile"
+            + (written == 1 ? "" : "s")
+            + " of "
+            + stagedProfiles.size()
+            + "; "
+            + changedServices.size()
+            + " of "
+            + generations.size()
+            + " services changed");
+
     return new ResolvedConfiguration()
         .setStagingDirectory(spinnakerStaging.toString())
         .setServiceProfiles(serviceProfiles)
+        .setChangedServices(changedServices)
         .setRuntimeSettings(runtimeSettings);
   }
 
+  /**
+   * Writes the profile to the staging directory, unless the staged copy is already up to date.
+   *
+   * @return true iff the profile was written.
+   */
+  private boolean stageProfile(File spinnakerStaging, Profile profile) throws IOException {
+    Path path = Paths.get(profile.getStagedFile(spinnakerStaging.toString()));
+    byte[] contents = profile.getContents().getBytes(StandardCharsets.UTF_8);
+    if (Files.isRegularFile(path)
+        && Files.size(path) == contents.length
+        && Arrays.equals(Files.readAllBytes(path), contents)) {
+      return false;
+    }
+
+    profile.writeStagedFile(spinnakerStaging.toString());
+    return true;
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      AtomicInteger threadCount = new AtomicInteger();
+      executor =
+          Executors.newFixedThreadPool(
+              parallelism,
+              r -> {
+                Thread thread = new Thread(r, "generate-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+
+    return executor;
+  }
+
   private void mergeProfilesAndPreserveProperties(
       Map<String, Profile> existingProfiles, Map<String, Profile> newProfiles) {
     for (Map.Entry<String, Profile> entry : newProfiles.entrySet()) {
@@ -194,11 +291,7 @@ public class GenerateService {
     }
   }
 
-  private Map<String, Profile> processProfiles(File spinnakerStaging, List<Profile> profiles) {
-    for (Profile profile : profiles) {
-      profile.writeStagedFile(spinnakerStaging.toString());
-    }
-
+  private Map<String, Profile> toProfileMap(List<Profile> profiles) {
     Map<String, Profile> profileMap = new HashMap<>();
     for (Profile profile : profiles) {
       profileMap.put(profile.getName(), profile);
@@ -230,9 +323,117 @@ public class GenerateService {
             });
   }
 
+  /**
+   * Renders the profiles of a single service, on whichever thread it's handed to. The deployment is
+   * looked up when it runs, so that it is read from the halconfig the thread was given.
+   */
+  private class ServiceGeneration implements Callable<Void> {
+    final SpinnakerService service;
+    final String deploymentName;
+    final SpinnakerRuntimeSettings runtimeSettings;
+    final Path userProfilePath;
+    final List<String> userProfileNames;
+    Future<Void> future;
+    List<Profile> profiles;
+    List<Profile> customProfiles;
+    long millis;
+
+    ServiceGeneration(
+        SpinnakerService service,
+        String deploymentName,
+        SpinnakerRuntimeSettings runtimeSettings,
+        Path userProfilePath,
+        List<String> userProfileNames) {
+      this.service = service;
+      this.deploymentName = deploymentName;
+      this.runtimeSettings = runtimeSettings;
+      this.userProfilePath = userProfilePath;
+      this.userProfileNames = userProfileNames;
+    }
+
+    @Override
+    public Void call() {
+      long start = System.currentTimeMillis();
+      DeploymentConfiguration deploymentConfiguration =
+          deploymentService.getDeploymentConfiguration(deploymentName);
+      profiles = service.getProfiles(deploymentConfiguration, runtimeSettings);
+      customProfiles =
+          userProfileNames.stream()
+              .map(
+                  s ->
+                      (Optional<Profile>)
+                          service.customProfile(
+                              deploymentConfiguration,
+                              runtimeSettings,
+                              Paths.get(userProfilePath.toString(), s),
+                              s))
+              .filter(Optional::isPresent)
+              .map(Optional::get)
+              .collect(Collectors.toList());
+      millis = System.currentTimeMillis() - start;
+      return null;
+    }
+
+    void await() throws InterruptedException {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+
+        throw new HalException(
+            Severity.FATAL,
+            "Failed to generate profiles for " + service.getCanonicalName() + ": " + cause);
+      }
+    }
+
+    String getMessage() {
+      String pluralModifier = profiles.size() == 1 ? "" : "s";
+      String customPluralModifier = customProfiles.size() == 1 ? "" : "s";
+      String message =
+          "Generated "
+              + profiles.size()
+              + " profile"
+              + pluralModifier
+              + " and discovered "
+              + customProfiles.size()
+              + " custom profile"
+              + customPluralModifier
+              + " for "
+              + service.getCanonicalName()
+              + " in "
+              + millis
+              + " millis";
+
+      Map<String, Long> factoryMillis = new LinkedHashMap<>();
+      for (Profile profile : profiles) {
+        if (profile.getGeneratedBy() != null) {
+          factoryMillis.merge(profile.getGeneratedBy(), profile.getGenerationMillis(), Long::sum);
+        }
+      }
+
+      if (factoryMillis.isEmpty()) {
+        return message;
+      }
+
+      return message
+          + " ("
+          + factoryMillis.entrySet().stream()
+              .map(e -> e.getKey() + ": " + e.getValue() + " millis")
+              .collect(Collectors.joining(", "))
+          + ")";
+    }
+  }
+
   @Data
   public static class ResolvedConfiguration {
     private Map<SpinnakerService.Type, Map<String, Profile>> serviceProfiles = new HashMap<>();
+    // Services whose generated profiles differ from what was staged for them before
+    private Set<SpinnakerService.Type> changedServices = new HashSet<>();
     SpinnakerRuntimeSettings runtimeSettings;
     private String stagingDirectory;
 
@@ -245,5 +446,10 @@ public class GenerateService {
     public Map<String, Profile> getProfilesForService(SpinnakerService.Type type) {
       return serviceProfiles.getOrDefault(type, new HashMap<>());
     }
+
+    @JsonIgnore
+    public boolean hasChanged(SpinnakerService.Type type) {
+      return changedServices.contains(type);
+    }
   }
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.services.v1;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.spinnaker.halyard.core.AtomicFileWriter;
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.profile.Profile;
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records a digest of every profile staged for each service, so the next time a deployment's
+ * config is generated we can tell which services' rendered output actually changed.
+ *
+ * <p>A profile's digest covers everything a deployer ships for it: its contents, where and how it's
+ * installed, its environment, and the contents of the files it requires.
+ */
+@Data
+@Slf4j
+class StagingManifest {
+  static final String FILE_NAME = ".manifest.json";
+
+  // Service's canonical name -> profile name -> digest of that profile
+  private Map<String, Map<String, String>> services = new TreeMap<>();
+
+  /**
+   * Reads the manifest left in the staging directory by the last generation. A missing or
+   * unreadable manifest is treated as empty, which marks every service as changed.
+   *
+   * @param objectMapper is used to parse the manifest.
+   * @param stagingPath is the deployment's staging directory.
+   * @return the manifest, never null.
+   */
+  static StagingManifest read(ObjectMapper objectMapper, Path stagingPath) {
+    Path path = stagingPath.resolve(FILE_NAME);
+    if (!Files.isRegularFile(path)) {
+      return new StagingManifest();
+    }
+
+    try {
+      return objectMapper.readValue(path.toFile(), StagingManifest.class);
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable staging manifest " + path + ": " + e.getMessage());
+      return new StagingManifest();
+    }
+  }
+
+  void write(ObjectMapper objectMapper, Path stagingPath) throws IOException {
+    AtomicFileWriter writer = null;
+    try {
+      writer = new AtomicFileWriter(stagingPath.resolve(FILE_NAME));
+      writer.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(this));
+      writer.commit();
+    } finally {
+      if (writer != null) {
+        writer.close();
+      }
+    }
+  }
+
+  /**
+   * Records the profiles just generated for a service.
+   *
+   * @param type is the service the profiles belong to.
+   * @param profiles are the service's profiles, keyed by name.
+   * @return true iff they differ from what was recorded for the service before.
+   */
+  boolean update(SpinnakerService.Type type, Map<String, Profile> profiles) {
+    Map<String, String> digests = new TreeMap<>();
+    for (Map.Entry<String, Profile> entry : profiles.entrySet()) {
+      digests.put(entry.getKey(), digest(entry.getValue()));
+    }
+
+    return !digests.equals(services.put(type.getCanonicalName(), digests));
+  }
+
+  void remove(SpinnakerService.Type type) {
+    services.remove(type.getCanonicalName());
+  }
+
+  /** @return the names of every profile staged for any service in this manifest. */
+  Set<String> stagedProfileNames() {
+    Set<String> result = new HashSet<>();
+    services.values().forEach(p -> result.addAll(p.keySet()));
+    return result;
+  }
+
+  static String digest(Profile profile) {
+    MessageDigest digest = newDigest();
+    update(digest, profile.getName());
+    update(digest, profile.getOutputFile());
+    update(digest, profile.getContents());
+    update(digest, profile.isExecutable() + ":" + profile.getUser() + ":" + profile.getGroup());
+    new TreeMap<>(profile.getEnv()).forEach((k, v) -> update(digest, k + "=" + v));
+
+    for (String file : profile.getRequiredFiles()) {
+      update(digest, file);
+      Path path = Paths.get(file);
+      if (Files.isRegularFile(path)) {
+        try {
+          digest.update(Files.readAllBytes(path));
+        } catch (IOException e) {
+          // The deployer will fail on this file anyway; just make sure we don't call it unchanged.
+          update(digest, "unreadable:" + System.nanoTime());
+        }
+      }
+    }
+
+    new TreeMap<>(profile.getDecryptedFiles())
+        .forEach(
+            (k, v) -> {
+              update(digest, k);
+              digest.update(v);
+            });
+
+    return toHex(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(String.valueOf(value).getBytes(UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder result = new StringBuilder();
+    for (byte b : bytes) {
+      result.append(String.format("%02x", b));
+    }
+
+    return result.toString();
+  }
+}
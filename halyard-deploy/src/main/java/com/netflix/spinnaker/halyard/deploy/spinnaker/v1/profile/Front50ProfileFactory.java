@@ -16,13 +16,11 @@
 
 package com.netflix.spinnaker.halyard.deploy.spinnaker.v1.profile;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.spinnaker.halyard.config.model.v1.node.*;
 import com.netflix.spinnaker.halyard.config.model.v1.persistentStorage.RedisPersistentStore;
 import com.netflix.spinnaker.halyard.config.services.v1.AccountService;
 import com.netflix.spinnaker.halyard.core.error.v1.HalException;
 import com.netflix.spinnaker.halyard.core.problem.v1.Problem;
-import com.netflix.spinnaker.halyard.deploy.config.v1.secrets.DecryptingObjectMapper;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.SpinnakerArtifact;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.SpinnakerRuntimeSettings;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerService.Type;
@@ -76,8 +74,6 @@ public class Front50ProfileFactory extends SpringProfileFactory {
 
     NodeIterator children = persistentStorage.getChildren();
     Node child = children.getNext();
-    ObjectMapper mapper = getRelaxedObjectMapper(deploymentConfiguration.getName(), profile);
-
     while (child != null) {
       if (child instanceof PersistentStore) {
         PersistentStore persistentStore = (PersistentStore) child;
@@ -95,7 +91,8 @@ public class Front50ProfileFactory extends SpringProfileFactory {
 
         PersistentStore.PersistentStoreType persistentStoreType =
             persistentStore.persistentStoreType();
-        Map persistentStoreMap = mapper.convertValue(persistentStore, Map.class);
+        Map persistentStoreMap =
+            convertToMap(deploymentConfiguration.getName(), profile, persistentStore, true);
         persistentStoreMap.put(
             "enabled", persistentStoreType.equals(persistentStorage.getPersistentStoreType()));
 
@@ -111,13 +108,4 @@ public class Front50ProfileFactory extends SpringProfileFactory {
         .appendContents(profile.getBaseContents())
         .setRequiredFiles(files);
   }
-
-  protected ObjectMapper getRelaxedObjectMapper(String deploymentName, Profile profile) {
-    return new DecryptingObjectMapper(
-            secretSessionManager,
-            profile,
-            halconfigDirectoryStructure.getStagingDependenciesPath(deploymentName),
-            !supportsSecretDecryption(deploymentName))
-        .relax();
-  }
 }
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 import org.yaml.snakeyaml.Yaml;
 
@@ -40,7 +41,7 @@ import org.yaml.snakeyaml.Yaml;
 public class KubernetesV2ClouddriverProfileFactory extends ClouddriverProfileFactory {
 
   private final ObjectMapper objectMapper;
-  private final Yaml yamlParser;
+  private final ApplicationContext applicationContext;
   private final FileService fileService;
 
   // Constants used for parsing Kubeconfig file.
@@ -55,12 +56,16 @@ public class KubernetesV2ClouddriverProfileFactory extends ClouddriverProfileFac
   private static final String GCP = "gcp";
 
   public KubernetesV2ClouddriverProfileFactory(
-      ObjectMapper objectMapper, Yaml yamlParser, FileService fileService) {
+      ObjectMapper objectMapper, ApplicationContext applicationContext, FileService fileService) {
     this.objectMapper = objectMapper;
-    this.yamlParser = yamlParser;
+    this.applicationContext = applicationContext;
     this.fileService = fileService;
   }
 
+  private Yaml getYamlParser() {
+    return applicationContext.getBean(Yaml.class);
+  }
+
   @Override
   protected void processProviders(Providers providers) {
     if (providers.getKubernetes() != null && providers.getKubernetes().getAccounts() != null) {
@@ -82,7 +87,7 @@ public class KubernetesV2ClouddriverProfileFactory extends ClouddriverProfileFac
 
     String kubeconfigContents = getKubeconfigFileContents(kubeconfigFile);
 
-    Object obj = yamlParser.load(kubeconfigContents);
+    Object obj = getYamlParser().load(kubeconfigContents);
     Map<String, Object> parsedKubeconfig =
         objectMapper.convertValue(obj, new TypeReference<Map<String, Object>>() {});
     if (parsedKubeconfig == null) {
@@ -108,7 +113,7 @@ public class KubernetesV2ClouddriverProfileFactory extends ClouddriverProfileFac
     authProviderConfig.get().put("cmd-path", "gcloud");
 
     try {
-      yamlParser.dump(parsedKubeconfig, new FileWriter(kubeconfigFile));
+      getYamlParser().dump(parsedKubeconfig, new FileWriter(kubeconfigFile));
     } catch (IOException e) {
       throw new HalException(
           Problem.Severity.FATAL,
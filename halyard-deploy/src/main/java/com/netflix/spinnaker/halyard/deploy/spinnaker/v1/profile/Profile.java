@@ -51,6 +51,9 @@ public class Profile {
   boolean executable = false;
   private String user = "spinnaker";
   private String group = "spinnaker";
+  // How long the factory that produced this profile took, and which factory it was
+  @JsonIgnore private long generationMillis;
+  @JsonIgnore private String generatedBy;
 
   public String getStagedFile(String stagingPath) {
     return Paths.get(stagingPath, name).toString();
@@ -17,7 +17,6 @@
 
 package com.netflix.spinnaker.halyard.deploy.spinnaker.v1.profile;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.spinnaker.halyard.backup.services.v1.BackupService;
 import com.netflix.spinnaker.halyard.config.config.v1.HalconfigDirectoryStructure;
 import com.netflix.spinnaker.halyard.config.model.v1.node.DeploymentConfiguration;
@@ -31,14 +30,19 @@ import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.SpinnakerRuntimeSetting
 import java.util.List;
 import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.yaml.snakeyaml.Yaml;
 
 public abstract class ProfileFactory {
+  // Services are generated in parallel from their own copies of the halconfig, which name the same
+  // files; copying one while another thread replaces it fails.
+  private static final Object backupLock = new Object();
+
   @Autowired private ArtifactService artifactService;
 
   @Autowired protected HalconfigDirectoryStructure halconfigDirectoryStructure;
 
-  @Autowired private Yaml yamlParser;
+  @Autowired private ApplicationContext applicationContext;
 
   @Autowired protected SecretSessionManager secretSessionManager;
 
@@ -77,11 +81,17 @@ public abstract class ProfileFactory {
     return artifactService;
   }
 
+  // Yaml isn't thread-safe, and profiles are generated concurrently, so every use gets its own.
+  private Yaml getYamlParser() {
+    return applicationContext.getBean(Yaml.class);
+  }
+
   public Profile getProfile(
       String name,
       String outputFile,
       DeploymentConfiguration deploymentConfiguration,
       SpinnakerRuntimeSettings endpoints) {
+    long start = System.currentTimeMillis();
     String deploymentName = deploymentConfiguration.getName();
     String version = getArtifactService().getArtifactVersion(deploymentName, getArtifact());
     Profile result = getBaseProfile(name, version, outputFile);
@@ -90,6 +100,8 @@ public abstract class ProfileFactory {
       result.preppendContents(getEditWarning());
     }
 
+    result.setGenerationMillis(System.currentTimeMillis() - start);
+    result.setGeneratedBy(getClass().getSimpleName());
     return result;
   }
 
@@ -119,21 +131,26 @@ public abstract class ProfileFactory {
    * @return the list of files required by the node to function.
    */
   protected List<String> backupRequiredFiles(Node node, String deploymentName) {
-    return backupService.backupLocalFiles(
-        node, halconfigDirectoryStructure.getStagingDependenciesPath(deploymentName).toString());
+    synchronized (backupLock) {
+      return backupService.backupLocalFiles(
+          node, halconfigDirectoryStructure.getStagingDependenciesPath(deploymentName).toString());
+    }
   }
 
   protected String yamlToString(String deploymentName, Profile profile, Object o) {
-    return yamlParser.dump(convertToMap(deploymentName, profile, o));
+    return getYamlParser().dump(convertToMap(deploymentName, profile, o));
   }
 
   protected Map convertToMap(String deploymentName, Profile profile, Object o) {
-    ObjectMapper mapper =
-        new DecryptingObjectMapper(
+    return convertToMap(deploymentName, profile, o, false);
+  }
+
+  protected Map convertToMap(String deploymentName, Profile profile, Object o, boolean relaxed) {
+    return DecryptingObjectMapper.shared(!supportsSecretDecryption(deploymentName), relaxed)
+        .convertToMap(
+            o,
             secretSessionManager,
             profile,
-            halconfigDirectoryStructure.getStagingDependenciesPath(deploymentName),
-            !supportsSecretDecryption(deploymentName));
-    return mapper.convertValue(o, Map.class);
+            halconfigDirectoryStructure.getStagingDependenciesPath(deploymentName));
   }
 }
@@ -68,6 +68,7 @@ public class RegistryBackedArchiveProfileBuilder {
     try {
       tis = (TarArchiveInputStream) new ArchiveStreamFactory().createArchiveInputStream("tar", is);
     } catch (ArchiveException e) {
+      IOUtils.closeQuietly(is);
       throw new HalException(Problem.Severity.FATAL, "Failed to unpack tar archive", e);
     }
 
@@ -133,6 +134,9 @@ public class RegistryBackedArchiveProfileBuilder {
       return result;
     } catch (IOException e) {
       throw new HalException(Problem.Severity.FATAL, "Failed to read profile entry", e);
+    } finally {
+      // Archives are streamed from disk, so the stream has to be closed once read.
+      IOUtils.closeQuietly(tis);
     }
   }
 }
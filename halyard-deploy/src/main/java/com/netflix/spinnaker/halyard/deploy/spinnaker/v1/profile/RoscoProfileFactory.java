@@ -39,6 +39,7 @@ import java.util.Map;
 import java.util.TreeMap;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 import org.yaml.snakeyaml.Yaml;
 
@@ -59,16 +60,20 @@ public class RoscoProfileFactory extends SpringProfileFactory {
 
   @Autowired HalconfigDirectoryStructure halconfigDirectoryStructure;
 
-  @Autowired Yaml yamlParser;
+  @Autowired ApplicationContext applicationContext;
 
   @Autowired ObjectMapper objectMapper;
 
+  private Yaml getYamlParser() {
+    return applicationContext.getBean(Yaml.class);
+  }
+
   protected Providers getImageProviders(String version, String deploymentName) {
     Providers providers;
 
     try (InputStream is =
         profileRegistry.readProfile(getArtifact().getName(), version, "images.yml")) {
-      Object obj = yamlParser.load(is);
+      Object obj = getYamlParser().load(is);
 
       providers = objectMapper.convertValue(obj, Providers.class);
     } catch (IOException e) {
@@ -87,7 +92,7 @@ public class RoscoProfileFactory extends SpringProfileFactory {
       // Need just the $PROVIDER.bakeryDefaults.baseImages list items to merge in with the content
       // from rosco/halconfig/images.yml.
       try (FileInputStream fis = new FileInputStream(f)) {
-        Object localObj = yamlParser.load(fis);
+        Object localObj = getYamlParser().load(fis);
 
         localProviders = objectMapper.convertValue(localObj, Providers.class);
       } catch (IOException e) {
@@ -134,7 +139,7 @@ public class RoscoProfileFactory extends SpringProfileFactory {
     }
 
     if (!imageProviders.isEmpty()) {
-      profile.appendContents(yamlParser.dump(imageProviders));
+      profile.appendContents(getYamlParser().dump(imageProviders));
     }
 
     profile.appendContents(profile.getBaseContents()).setRequiredFiles(files);
@@ -18,27 +18,53 @@
 
 package com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.spinnaker.halyard.config.model.v1.providers.kubernetes.KubernetesAccount;
 import com.netflix.spinnaker.halyard.core.error.v1.HalException;
 import com.netflix.spinnaker.halyard.core.job.v1.JobExecutor;
 import com.netflix.spinnaker.halyard.core.job.v1.JobRequest;
 import com.netflix.spinnaker.halyard.core.job.v1.JobStatus;
 import com.netflix.spinnaker.halyard.core.problem.v1.Problem;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 @Slf4j
 public class KubernetesV2Executor {
+  // Records the digest of a deployment's manifest and secrets, see getConfigDigests().
+  public static final String CONFIG_DIGEST_ANNOTATION = "halyard.spinnaker.io/config-digest";
+
+  // Minor versions of kubectl 1.x that first support server-side apply, and watch events.
+  private static final int SERVER_SIDE_APPLY_MINOR_VERSION = 18;
+  private static final int WATCH_EVENTS_MINOR_VERSION = 16;
+
   private KubernetesAccount account;
   private JobExecutor executor;
   private KubernetesV2Utils kubernetesV2Utils;
+  // When set, manifests passed to replace() are collected here to be applied later in a batch.
+  private List<String> deferredManifests;
+  // Names of the halyard-managed secrets in each namespace, listed once and shared between the
+  // executors created with deferring().
+  private Map<String, Set<String>> existingSecrets = new ConcurrentHashMap<>();
+  // The minor version of the local kubectl, checked once and shared like the above; see
+  // kubectlMinorVersion(String).
+  private AtomicReference<Integer> kubectlMinorVersion = new AtomicReference<>();
 
   public KubernetesV2Executor(
       JobExecutor executor, KubernetesAccount account, KubernetesV2Utils kubernetesV2Utils) {
@@ -47,6 +73,21 @@ public class KubernetesV2Executor {
     this.kubernetesV2Utils = kubernetesV2Utils;
   }
 
+  /**
+   * Creates an executor that doesn't replace manifests itself, but collects them so they can be
+   * passed to {@link #applyAll} along with the manifests that depend on them.
+   *
+   * @param deferredManifests is where replaced manifests are collected.
+   * @return an executor sharing this executor's account and known secrets.
+   */
+  public KubernetesV2Executor deferring(List<String> deferredManifests) {
+    KubernetesV2Executor result = new KubernetesV2Executor(executor, account, kubernetesV2Utils);
+    result.deferredManifests = deferredManifests;
+    result.existingSecrets = existingSecrets;
+    result.kubectlMinorVersion = kubectlMinorVersion;
+    return result;
+  }
+
   public KubernetesV2Utils getKubernetesV2Utils() {
     return kubernetesV2Utils;
   }
@@ -111,6 +152,199 @@ public class KubernetesV2Executor {
     }
   }
 
+  /**
+   * Checks which of the given manifests already exist, with a single kubectl call.
+   *
+   * @param namespace is the namespace of the namespaced manifests.
+   * @param manifests are the manifests to check for.
+   * @return the keys (see {@link #resourceKey}) of the manifests that exist.
+   */
+  public Set<String> getExisting(String namespace, List<String> manifests) {
+    List<String> command = kubernetesV2Utils.kubectlPrefix(account);
+
+    if (StringUtils.isNotEmpty(namespace)) {
+      command.add("-n");
+      command.add(namespace);
+    }
+
+    command.add("get");
+    for (String manifest : manifests) {
+      command.add(resourceKey(manifest));
+    }
+
+    command.add("--ignore-not-found");
+
+    return getNames(command, "Failed check for existing resources in " + namespace);
+  }
+
+  /**
+   * Reads the config digest (see {@link KubernetesV2Utils#configDigest}) recorded on each
+   * halyard-managed deployment in the namespace when it was last applied.
+   *
+   * @param namespace is the namespace to look in.
+   * @return the digest of each deployment, by name. Deployments without one are omitted, and if the
+   *     deployments can't be listed at all the result is empty, so nothing is considered unchanged.
+   */
+  public Map<String, String> getConfigDigests(String namespace) {
+    List<String> command = kubernetesV2Utils.kubectlPrefix(account);
+    command.add("-n");
+    command.add(namespace);
+    command.add("get");
+    command.add("deployments");
+    command.add("-l");
+    command.add("app=spin");
+    command.add(
+        "-o=jsonpath={range .items[*]}{.metadata.name}{\"\\t\"}{.metadata.annotations."
+            + CONFIG_DIGEST_ANNOTATION.replace(".", "\\.")
+            + "}{\"\\n\"}{end}");
+
+    JobRequest request = new JobRequest().setTokenizedCommand(command);
+
+    String jobId = executor.startJob(request);
+
+    JobStatus status;
+    try {
+      status = executor.backoffWait(jobId);
+    } catch (InterruptedException e) {
+      throw new DaemonTaskInterrupted(e);
+    }
+
+    Map<String, String> result = new HashMap<>();
+    if (status.getState() != JobStatus.State.COMPLETED
+        || status.getResult() != JobStatus.Result.SUCCESS) {
+      log.warn(
+          "Unable to read config digests in "
+              + namespace
+              + ", all services will be redeployed: "
+              + status.getStdErr());
+      return result;
+    }
+
+    for (String line : status.getStdOut().split("\n")) {
+      String[] parts = line.trim().split("\t");
+      if (parts.length == 2 && !parts[1].isEmpty()) {
+        result.put(parts[0], parts[1]);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Replaces the given secret, unless a halyard-managed secret with the same name already exists
+   * in its namespace. Since secret names are derived from a digest of their contents, an existing
+   * secret is identical, and rewriting it would only churn the pods mounting it.
+   *
+   * @param namespace is the namespace of the secret.
+   * @param name is the name of the secret.
+   * @param manifest is the secret's manifest.
+   * @return true iff the secret was written.
+   */
+  public boolean replaceSecret(String namespace, String name, String manifest) {
+    Set<String> secrets = existingSecrets.computeIfAbsent(namespace, this::listSecrets);
+    if (secrets.contains(name)) {
+      return false;
+    }
+
+    replace(manifest);
+    secrets.add(name);
+    return true;
+  }
+
+  private Set<String> listSecrets(String namespace) {
+    List<String> command = kubernetesV2Utils.kubectlPrefix(account);
+    command.add("-n");
+    command.add(namespace);
+    command.add("get");
+    command.add("secrets");
+    command.add("-l");
+    command.add("app=spin");
+
+    Set<String> result = ConcurrentHashMap.newKeySet();
+    try {
+      for (String secret : getNames(command, "Failed to list secrets in " + namespace)) {
+        result.add(secret.substring(secret.indexOf('/') + 1));
+      }
+    } catch (HalException e) {
+      log.warn("Unable to list existing secrets, all secrets will be replaced: ", e);
+    }
+
+    return result;
+  }
+
+  private Set<String> getNames(List<String> command, String failure) {
+    command.add("-o=name");
+
+    JobRequest request = new JobRequest().setTokenizedCommand(command);
+
+    String jobId = executor.startJob(request);
+
+    JobStatus status;
+    try {
+      status = executor.backoffWait(jobId);
+    } catch (InterruptedException e) {
+      throw new DaemonTaskInterrupted(e);
+    }
+
+    if (status.getState() != JobStatus.State.COMPLETED
+        || status.getResult() != JobStatus.Result.SUCCESS) {
+      throw new HalException(
+          Problem.Severity.FATAL,
+          String.join("\n", failure, status.getStdErr(), status.getStdOut()));
+    }
+
+    // Names are printed as kind.group/name, e.g. deployment.apps/spin-orca.
+    Set<String> result = new HashSet<>();
+    for (String line : status.getStdOut().split("\n")) {
+      line = line.trim();
+      int slash = line.indexOf('/');
+      if (slash < 0) {
+        continue;
+      }
+
+      String kind = line.substring(0, slash);
+      int dot = kind.indexOf('.');
+      if (dot >= 0) {
+        kind = kind.substring(0, dot);
+      }
+
+      result.add(kind.toLowerCase() + line.substring(slash));
+    }
+
+    return result;
+  }
+
+  /**
+   * @param manifest is a single kubernetes manifest.
+   * @return the manifest's lower-cased kind and name, as accepted by kubectl get: "kind/name".
+   */
+  public String resourceKey(String manifest) {
+    Map<String, Object> parsedManifest = kubernetesV2Utils.parseManifest(manifest);
+    String kind = (String) parsedManifest.get("kind");
+    Map<String, Object> metadata =
+        (Map<String, Object>) parsedManifest.getOrDefault("metadata", new HashMap<>());
+    return kind.toLowerCase() + "/" + metadata.get("name");
+  }
+
+  /**
+   * @param namespace is the namespace to watch, once its deployments have been applied.
+   * @return a tracker watching the rollout of all services in the namespace, to be closed once no
+   *     longer needed.
+   */
+  public KubernetesV2ReadinessTracker watchReadiness(String namespace) {
+    boolean watch = kubectlMinorVersion() >= WATCH_EVENTS_MINOR_VERSION;
+    if (!watch) {
+      DaemonTaskHandler.message(
+          "Watching deployments needs kubectl 1.16 or newer, falling back to polling them");
+    }
+
+    KubernetesV2ReadinessTracker result =
+        new KubernetesV2ReadinessTracker(
+            executor, kubernetesV2Utils.kubectlPrefix(account), namespace, watch);
+    result.start();
+    return result;
+  }
+
   public boolean isReady(String namespace, String service) {
     log.info("Checking readiness for " + service);
     List<String> command = kubernetesV2Utils.kubectlPrefix(account);
@@ -303,7 +537,185 @@ public class KubernetesV2Executor {
     }
   }
 
+  /**
+   * Applies all the given manifests with a single, server-side, kubectl apply. Manifests are
+   * applied in order, so e.g. a namespace should precede the resources in it.
+   *
+   * <p>Server-side apply doesn't store the last applied configuration in an annotation, so unlike
+   * {@link #apply} this handles secrets too large for that annotation.
+   *
+   * <p>Server-side apply needs kubectl 1.18 or newer. With an older kubectl the secrets are
+   * replaced one by one instead, and everything else is applied client-side in a single call.
+   *
+   * @param manifests are the manifests to apply.
+   * @return the "kind/name" of every resource kubectl reported as applied.
+   */
+  public List<String> applyAll(List<String> manifests) {
+    if (manifests.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    boolean serverSide = supportsServerSideApply();
+    List<String> result = new ArrayList<>();
+    if (!serverSide) {
+      DaemonTaskHandler.message(
+          "Server-side apply needs kubectl 1.18 or newer, falling back to client-side apply");
+      List<String> remaining = new ArrayList<>();
+      for (String manifest : manifests) {
+        if ("Secret".equals(kubernetesV2Utils.parseManifest(manifest).get("kind"))) {
+          replace(manifest);
+          result.add(resourceKey(manifest));
+        } else {
+          remaining.add(manifest);
+        }
+      }
+
+      manifests = remaining;
+      if (manifests.isEmpty()) {
+        return result;
+      }
+    }
+
+    String manifest =
+        manifests.stream().map(kubernetesV2Utils::prettify).collect(Collectors.joining("---\n"));
+    List<String> command = kubernetesV2Utils.kubectlPrefix(account);
+    command.add("apply");
+    if (serverSide) {
+      command.add("--server-side");
+      command.add("--force-conflicts");
+      command.add("--field-manager=halyard");
+    }
+
+    command.add("-o=json");
+    command.add("-f");
+    command.add("-"); // read from stdin
+
+    JobRequest request = new JobRequest().setTokenizedCommand(command);
+
+    ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+    String jobId =
+        executor.startJob(
+            request,
+            System.getenv(),
+            new ByteArrayInputStream(manifest.getBytes()),
+            stdout,
+            stderr);
+
+    JobStatus status;
+    try {
+      status = executor.backoffWait(jobId);
+    } catch (InterruptedException e) {
+      throw new DaemonTaskInterrupted(e);
+    }
+
+    if (status.getState() != JobStatus.State.COMPLETED) {
+      throw new HalException(
+          Problem.Severity.FATAL,
+          String.join(
+              "\n",
+              "Unterminated deployment of manifests:",
+              manifest,
+              stderr.toString(),
+              stdout.toString()));
+    }
+
+    if (status.getResult() != JobStatus.Result.SUCCESS) {
+      throw new HalException(
+          Problem.Severity.FATAL,
+          String.join(
+              "\n", "Failed to deploy manifests:", manifest, stderr.toString(), stdout.toString()));
+    }
+
+    result.addAll(appliedResources(stdout.toString()));
+    return result;
+  }
+
+  boolean supportsServerSideApply() {
+    return kubectlMinorVersion() >= SERVER_SIDE_APPLY_MINOR_VERSION;
+  }
+
+  private int kubectlMinorVersion() {
+    Integer result = kubectlMinorVersion.get();
+    if (result == null) {
+      result = checkKubectlMinorVersion();
+      kubectlMinorVersion.set(result);
+    }
+
+    return result;
+  }
+
+  private int checkKubectlMinorVersion() {
+    List<String> command = kubernetesV2Utils.kubectlPrefix(account);
+    command.add("version");
+    command.add("--client");
+    command.add("-o=json");
+
+    JobRequest request = new JobRequest().setTokenizedCommand(command);
+
+    String jobId = executor.startJob(request);
+
+    JobStatus status;
+    try {
+      status = executor.backoffWait(jobId);
+    } catch (InterruptedException e) {
+      throw new DaemonTaskInterrupted(e);
+    }
+
+    if (status.getResult() != JobStatus.Result.SUCCESS) {
+      log.warn("Unable to determine the version of kubectl: " + status.getStdErr());
+      return -1;
+    }
+
+    return kubectlMinorVersion(status.getStdOut());
+  }
+
+  /** @param versionOutput is the output of "kubectl version --client -o=json". */
+  static boolean supportsServerSideApply(String versionOutput) {
+    return kubectlMinorVersion(versionOutput) >= SERVER_SIDE_APPLY_MINOR_VERSION;
+  }
+
+  /**
+   * @param versionOutput is the output of "kubectl version --client -o=json".
+   * @return the minor version of a 1.x kubectl, Integer.MAX_VALUE for any later major version, or
+   *     -1 if the version can't be parsed.
+   */
+  static int kubectlMinorVersion(String versionOutput) {
+    try {
+      JsonNode version = new ObjectMapper().readTree(versionOutput).path("clientVersion");
+      // Minor versions of some distributions carry a suffix, as in "18+".
+      int major = Integer.parseInt(version.path("major").asText().replaceAll("[^0-9]", ""));
+      int minor = Integer.parseInt(version.path("minor").asText().replaceAll("[^0-9]", ""));
+      return major > 1 ? Integer.MAX_VALUE : major == 1 ? minor : -1;
+    } catch (IOException | NumberFormatException e) {
+      log.warn("Unable to parse the version of kubectl: ", e);
+      return -1;
+    }
+  }
+
+  private List<String> appliedResources(String output) {
+    List<String> result = new ArrayList<>();
+    try {
+      JsonNode applied = new ObjectMapper().readTree(output);
+      Iterable<JsonNode> items =
+          applied.has("items") ? applied.get("items") : Collections.singletonList(applied);
+      for (JsonNode item : items) {
+        result.add(item.path("kind").asText() + "/" + item.path("metadata").path("name").asText());
+      }
+    } catch (IOException e) {
+      log.warn("Unable to parse the output of kubectl apply: ", e);
+    }
+
+    return result;
+  }
+
   public void replace(String manifest) {
+    if (deferredManifests != null) {
+      deferredManifests.add(manifest);
+      return;
+    }
+
     manifest = kubernetesV2Utils.prettify(manifest);
     List<String> command = kubernetesV2Utils.kubectlPrefix(account);
     command.add("replace");
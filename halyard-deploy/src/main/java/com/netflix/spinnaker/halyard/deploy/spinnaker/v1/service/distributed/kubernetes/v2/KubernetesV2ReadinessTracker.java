@@ -0,0 +1,348 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2;
+
+import com.netflix.spinnaker.halyard.core.error.v1.HalException;
+import com.netflix.spinnaker.halyard.core.job.v1.JobExecutor;
+import com.netflix.spinnaker.halyard.core.job.v1.JobRequest;
+import com.netflix.spinnaker.halyard.core.job.v1.JobStatus;
+import com.netflix.spinnaker.halyard.core.job.v1.LineByteArrayOutputStream;
+import com.netflix.spinnaker.halyard.core.problem.v1.Problem;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tracks the rollout of the Spinnaker services' deployments in a namespace with a single `kubectl
+ * get deployments --watch`, rather than every waiting service polling kubectl on its own.
+ *
+ * <p>A service is ready once its deployment has been rolled out, as `kubectl rollout status`
+ * decides it: the deployment controller has seen the latest spec, and every replica is updated and
+ * available, with none of the previous replica set's left. So the tracker has to be created after
+ * the deployments are applied.
+ *
+ * <p>Watch events need kubectl 1.16 or newer. Otherwise the deployments are listed every few
+ * seconds instead, once for all the waiting services.
+ *
+ * <p>The watch belongs to the task that created the tracker, even when it is restarted by a waiter
+ * on a child task, so that it isn't cancelled when that child completes. Only {@link #close} stops
+ * it.
+ */
+@Slf4j
+public class KubernetesV2ReadinessTracker implements AutoCloseable {
+  private static final String FIELD_SEPARATOR = "|";
+  // Read from each deployment, in the order they are parsed by onDeployment().
+  private static final List<String> FIELDS =
+      Arrays.asList(
+          "metadata.labels.cluster",
+          "metadata.generation",
+          "status.observedGeneration",
+          "spec.replicas",
+          "status.replicas",
+          "status.updatedReplicas",
+          "status.availableReplicas");
+  private static final long CHECK_MILLIS = TimeUnit.SECONDS.toMillis(5);
+  // The watch is restarted, or a failed listing retried, at most this many times before readiness
+  // checks give up.
+  private static final int MAX_FAILURES = 5;
+
+  private final JobExecutor executor;
+  private final List<String> command;
+  private final String namespace;
+  private final boolean watch;
+  private final long startTime = System.currentTimeMillis();
+  // Starts the watch as a job of the task that created this tracker.
+  private final Callable<String> startWatch;
+
+  // Service name (the deployment's cluster label) to the state of its deployment's rollout.
+  private final Map<String, Rollout> rollouts = new HashMap<>();
+  private final Map<String, CompletableFuture<Long>> waiters = new HashMap<>();
+
+  private String jobId;
+  private long lastPoll;
+  private int failures = -1;
+  private boolean closed;
+
+  /**
+   * @param watch is whether to watch the deployments, which needs kubectl 1.16 or newer, rather
+   *     than poll them.
+   */
+  KubernetesV2ReadinessTracker(
+      JobExecutor executor, List<String> kubectlPrefix, String namespace, boolean watch) {
+    this.executor = executor;
+    this.namespace = namespace;
+    this.watch = watch;
+
+    command = new ArrayList<>(kubectlPrefix);
+    command.add("-n=" + namespace);
+    command.add("get");
+    command.add("deployments");
+    command.add("-l=cluster");
+    if (watch) {
+      command.add("--watch");
+      command.add("--output-watch-events");
+      command.add("-o=jsonpath={.type}" + FIELD_SEPARATOR + jsonpath(".object.") + "{\"\\n\"}");
+    } else {
+      command.add(
+          "-o=jsonpath={range .items[*]}ADDED"
+              + FIELD_SEPARATOR
+              + jsonpath(".")
+              + "{\"\\n\"}{end}");
+    }
+
+    startWatch = DaemonTaskHandler.withCurrentTask(this::startWatchJob);
+  }
+
+  private static String jsonpath(String prefix) {
+    return FIELDS.stream()
+        .map(f -> "{" + prefix + f + "}")
+        .collect(Collectors.joining(FIELD_SEPARATOR));
+  }
+
+  /** Starts tracking the deployments, rather than waiting for the first service to be awaited. */
+  synchronized void start() {
+    refresh();
+  }
+
+  /**
+   * Blocks until the given service is ready.
+   *
+   * @param service is the service's name, as found in its deployment's cluster label.
+   * @return the number of milliseconds between this tracker's creation and the service being ready.
+   */
+  public long awaitReady(String service) {
+    CompletableFuture<Long> ready;
+    synchronized (this) {
+      ready = waiters.computeIfAbsent(service, k -> new CompletableFuture<>());
+      updateReadiness(service);
+    }
+
+    while (true) {
+      refresh();
+      try {
+        return ready.get(CHECK_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException ignored) {
+        // Check that the watch is still running, or list the deployments again, and keep waiting.
+      } catch (InterruptedException e) {
+        throw new DaemonTaskInterrupted(e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (jobId != null) {
+      executor.cancelJob(jobId);
+      jobId = null;
+    }
+  }
+
+  private synchronized void refresh() {
+    if (closed) {
+      throw new IllegalStateException("Readiness tracker for " + namespace + " is closed");
+    }
+
+    if (watch) {
+      ensureWatching();
+    } else {
+      poll();
+    }
+  }
+
+  private void ensureWatching() {
+    if (jobId != null) {
+      JobStatus status = executor.updateJob(jobId);
+      if (status != null && status.getState() == JobStatus.State.RUNNING) {
+        return;
+      }
+
+      log.warn(
+          "Deployment watch in "
+              + namespace
+              + " stopped"
+              + (status != null ? ": " + status.getStdErr() : ""));
+    }
+
+    if (++failures > MAX_FAILURES) {
+      throw new HalException(
+          Problem.Severity.FATAL, "Unable to keep a watch on the deployments in " + namespace);
+    }
+
+    // The watch starts by listing every deployment, so any state from a previous watch is stale.
+    rollouts.clear();
+    try {
+      jobId = startWatch.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Lists the deployments, unless they were listed for another waiter a moment ago. */
+  private void poll() {
+    long now = System.currentTimeMillis();
+    if (lastPoll > 0 && now - lastPoll < CHECK_MILLIS) {
+      return;
+    }
+
+    lastPoll = now;
+    String pollJobId = executor.startJob(new JobRequest().setTokenizedCommand(command));
+    JobStatus status;
+    try {
+      status = executor.backoffWait(pollJobId);
+    } catch (InterruptedException e) {
+      throw new DaemonTaskInterrupted(e);
+    }
+
+    if (status.getResult() != JobStatus.Result.SUCCESS) {
+      log.warn("Unable to list the deployments in " + namespace + ": " + status.getStdErr());
+      if (++failures > MAX_FAILURES) {
+        throw new HalException(
+            Problem.Severity.FATAL, "Unable to list the deployments in " + namespace);
+      }
+      return;
+    }
+
+    failures = 0;
+    rollouts.clear();
+    for (String line : status.getStdOut().split("\n")) {
+      if (!line.trim().isEmpty()) {
+        onDeployment(line);
+      }
+    }
+
+    new ArrayList<>(waiters.keySet()).forEach(this::updateReadiness);
+  }
+
+  private String startWatchJob() {
+    return executor.startJob(
+        new JobRequest().setTokenizedCommand(command),
+        System.getenv(),
+        new ByteArrayInputStream(new byte[0]),
+        new LineByteArrayOutputStream(this::onWatchEvent),
+        new ByteArrayOutputStream());
+  }
+
+  private synchronized void onWatchEvent(String line) {
+    String service = onDeployment(line);
+    if (service != null) {
+      updateReadiness(service);
+    }
+  }
+
+  /** @return the service whose deployment the line describes, or null if it can't be parsed. */
+  private String onDeployment(String line) {
+    String[] fields = line.trim().split("\\" + FIELD_SEPARATOR, -1);
+    if (fields.length != FIELDS.size() + 1) {
+      log.warn("Unexpected deployment event in " + namespace + ": " + line);
+      return null;
+    }
+
+    String service = fields[1];
+    if (fields[0].equals("DELETED")) {
+      rollouts.remove(service);
+      return service;
+    }
+
+    try {
+      rollouts.put(
+          service,
+          new Rollout(
+              parseCount(fields[2], 0),
+              parseCount(fields[3], 0),
+              // The number of replicas defaults to 1 when it isn't set.
+              parseCount(fields[4], 1),
+              parseCount(fields[5], 0),
+              parseCount(fields[6], 0),
+              parseCount(fields[7], 0)));
+    } catch (NumberFormatException e) {
+      log.warn("Unexpected deployment event in " + namespace + ": " + line);
+      return null;
+    }
+
+    return service;
+  }
+
+  // Fields that aren't set yet, e.g. the status of a new deployment, are printed as empty strings.
+  private static long parseCount(String field, long defaultValue) {
+    return field.isEmpty() ? defaultValue : Long.parseLong(field);
+  }
+
+  private void updateReadiness(String service) {
+    CompletableFuture<Long> ready = waiters.get(service);
+    if (ready == null || ready.isDone()) {
+      return;
+    }
+
+    Rollout rollout = rollouts.get(service);
+    if (rollout != null && rollout.isComplete()) {
+      long elapsed = System.currentTimeMillis() - startTime;
+      log.info(service + " in " + namespace + " was ready after " + elapsed + " millis");
+      ready.complete(elapsed);
+    }
+  }
+
+  private static class Rollout {
+    final long generation;
+    final long observedGeneration;
+    final long desiredReplicas;
+    final long replicas;
+    final long updatedReplicas;
+    final long availableReplicas;
+
+    Rollout(
+        long generation,
+        long observedGeneration,
+        long desiredReplicas,
+        long replicas,
+        long updatedReplicas,
+        long availableReplicas) {
+      this.generation = generation;
+      this.observedGeneration = observedGeneration;
+      this.desiredReplicas = desiredReplicas;
+      this.replicas = replicas;
+      this.updatedReplicas = updatedReplicas;
+      this.availableReplicas = availableReplicas;
+    }
+
+    /** Matches the checks `kubectl rollout status` makes of a deployment. */
+    boolean isComplete() {
+      return observedGeneration >= generation
+          && updatedReplicas >= desiredReplicas
+          // Replicas of the previous replica set are still running.
+          && replicas <= updatedReplicas
+          && availableReplicas >= updatedReplicas;
+    }
+  }
+}
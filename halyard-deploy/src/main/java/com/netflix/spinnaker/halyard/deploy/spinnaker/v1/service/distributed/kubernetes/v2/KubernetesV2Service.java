@@ -31,6 +31,7 @@ import com.netflix.spinnaker.halyard.core.error.v1.HalException;
 import com.netflix.spinnaker.halyard.core.problem.v1.Problem;
 import com.netflix.spinnaker.halyard.core.resource.v1.JinjaJarResource;
 import com.netflix.spinnaker.halyard.core.resource.v1.TemplatedResource;
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
 import com.netflix.spinnaker.halyard.deploy.deployment.v1.AccountDeploymentDetails;
 import com.netflix.spinnaker.halyard.deploy.services.v1.GenerateService;
 import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.SpinnakerRuntimeSettings;
@@ -512,6 +513,8 @@ public interface KubernetesV2Service<T> extends HasServiceSettings<T>, Kubernete
     Map<String, byte[]> requiredEncryptedFiles = new HashMap<>();
     List<ConfigSource> configSources = new ArrayList<>();
     String secretNamePrefix = getServiceName() + "-files";
+    int secretsWritten = 0;
+    int secretsSkipped = 0;
     String namespace = getNamespace(resolvedConfiguration.getServiceSettings(getService()));
     KubernetesAccount account = details.getAccount();
 
@@ -571,7 +574,11 @@ public interface KubernetesV2Service<T> extends HasServiceSettings<T>, Kubernete
               .getKubernetesV2Utils()
               .createSecretSpec(
                   namespace, getService().getCanonicalName(), secretNamePrefix, files);
-      executor.replace(spec.resource.toString());
+      if (executor.replaceSecret(namespace, spec.name, spec.resource.toString())) {
+        secretsWritten++;
+      } else {
+        secretsSkipped++;
+      }
       configSources.add(new ConfigSource().setId(spec.name).setMountPath(mountPath).setEnv(env));
     }
 
@@ -592,13 +599,26 @@ public interface KubernetesV2Service<T> extends HasServiceSettings<T>, Kubernete
               .getKubernetesV2Utils()
               .createSecretSpec(
                   namespace, getService().getCanonicalName(), secretNamePrefix, files);
-      executor.replace(spec.resource.toString());
+      if (executor.replaceSecret(namespace, spec.name, spec.resource.toString())) {
+        secretsWritten++;
+      } else {
+        secretsSkipped++;
+      }
       configSources.add(
           new ConfigSource()
               .setId(spec.name)
               .setMountPath(getSpinnakerStagingDependenciesPath(details.getDeploymentName())));
     }
 
+    DaemonTaskHandler.message(
+        "Staged config secrets for "
+            + getServiceName()
+            + ": "
+            + secretsWritten
+            + " written, "
+            + secretsSkipped
+            + " unchanged");
+
     return configSources;
   }
 
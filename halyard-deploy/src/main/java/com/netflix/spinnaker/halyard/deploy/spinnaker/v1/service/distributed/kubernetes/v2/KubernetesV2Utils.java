@@ -31,12 +31,18 @@ import com.netflix.spinnaker.kork.configserver.CloudConfigResourceService;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -48,6 +54,8 @@ import org.yaml.snakeyaml.constructor.SafeConstructor;
 @Slf4j
 @Component
 public class KubernetesV2Utils {
+  private static final int SECRET_DIGEST_LENGTH = 16;
+
   private final ObjectMapper mapper = new ObjectMapper();
 
   private final SecretSessionManager secretSessionManager;
@@ -148,7 +156,7 @@ public class KubernetesV2Utils {
     }
 
     SecretSpec spec = new SecretSpec();
-    spec.name = name + "-" + Math.abs(contentMap.hashCode());
+    spec.name = name + "-" + contentDigest(contentMap);
 
     spec.resource = new JinjaJarResource("/kubernetes/manifests/secret.yml");
     Map<String, Object> bindings = new HashMap<>();
@@ -163,6 +171,68 @@ public class KubernetesV2Utils {
     return spec;
   }
 
+  // The secret name doubles as a volume name, which is limited to 63 characters, so only a prefix
+  // of the digest is used.
+  private static String contentDigest(Map<String, String> contentMap) {
+    List<String> values = new ArrayList<>();
+    for (Map.Entry<String, String> entry : new TreeMap<>(contentMap).entrySet()) {
+      values.add(entry.getKey());
+      values.add(entry.getValue());
+    }
+
+    return digest(values).substring(0, SECRET_DIGEST_LENGTH);
+  }
+
+  /**
+   * Digests a service's resource manifest. The secrets it mounts are named after a digest of their
+   * contents, so the manifest changes with them, whether or not they were written this run. When
+   * the digest is unchanged, reapplying the manifest would be a no-op.
+   *
+   * @param resourceDefinition is the service's rendered resource (e.g. deployment) manifest.
+   * @return the hex-encoded digest.
+   */
+  public String configDigest(String resourceDefinition) {
+    return digest(Collections.singletonList(resourceDefinition));
+  }
+
+  private static String digest(List<String> values) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+    }
+
+    for (String value : values) {
+      digest.update(value.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+
+    StringBuilder result = new StringBuilder();
+    for (byte b : digest.digest()) {
+      result.append(String.format("%02x", b));
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * @param manifest is the manifest to annotate.
+   * @param key is the annotation's key.
+   * @param value is the annotation's value.
+   * @return the manifest with the annotation added to its metadata.
+   */
+  public String annotate(String manifest, String key, String value) {
+    Yaml yaml = new Yaml(new SafeConstructor());
+    Map<String, Object> parsed = (Map<String, Object>) yaml.load(manifest);
+    Map<String, Object> metadata =
+        (Map<String, Object>) parsed.computeIfAbsent("metadata", k -> new LinkedHashMap<>());
+    Map<String, Object> annotations =
+        (Map<String, Object>) metadata.computeIfAbsent("annotations", k -> new LinkedHashMap<>());
+    annotations.put(key, value);
+    return yaml.dump(parsed);
+  }
+
   public String prettify(String input) {
     Yaml yaml = new Yaml(new SafeConstructor());
     return yaml.dump(yaml.load(input));
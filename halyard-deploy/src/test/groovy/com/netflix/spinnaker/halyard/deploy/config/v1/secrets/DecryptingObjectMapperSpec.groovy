@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.config.v1.secrets
+
+import com.netflix.spinnaker.halyard.config.model.v1.providers.kubernetes.KubernetesAccount
+import com.netflix.spinnaker.halyard.core.secrets.v1.SecretSessionManager
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.profile.Profile
+import spock.lang.Specification
+
+import java.nio.file.Path
+import java.nio.file.Paths
+
+class DecryptingObjectMapperSpec extends Specification {
+  static final String KUBECONFIG = "encrypted:s3!r:us-west-2!b:bucket!f:kubeconfig"
+  static final Path OUTPUT = Paths.get("/home/spinnaker/.hal/secrets")
+
+  SecretSessionManager secretSessionManager = Stub(SecretSessionManager) {
+    decryptAsBytes(KUBECONFIG) >> "contents".bytes
+  }
+
+  private static Profile newProfile() {
+    return new Profile("clouddriver.yml", "1.0.0", "/opt/spinnaker/config/clouddriver.yml", "")
+  }
+
+  private static KubernetesAccount account(String kubeconfigFile) {
+    return new KubernetesAccount().setKubeconfigFile(kubeconfigFile)
+  }
+
+  private Map convert(DecryptingObjectMapper mapper) {
+    return mapper.convertToMap(account(KUBECONFIG), secretSessionManager, newProfile(), OUTPUT)
+  }
+
+  void "the shared mappers convert values like a mapper built for the call"() {
+    setup:
+    Profile sharedProfile = newProfile()
+    Profile ownProfile = newProfile()
+    DecryptingObjectMapper own =
+        new DecryptingObjectMapper(secretSessionManager, ownProfile, OUTPUT, true)
+
+    when:
+    Map shared = DecryptingObjectMapper.shared(true, false)
+        .convertToMap(account(KUBECONFIG), secretSessionManager, sharedProfile, OUTPUT)
+
+    then:
+    shared == own.convertValue(account(KUBECONFIG), Map)
+    sharedProfile.decryptedFiles.keySet() == ownProfile.decryptedFiles.keySet()
+    sharedProfile.decryptedFiles.values()*.toList() == [("contents".bytes as List)]
+    shared.kubeconfigFile == OUTPUT.resolve(sharedProfile.decryptedFiles.keySet()[0]).toString()
+  }
+
+  void "decrypted files are named after their field and encrypted reference"() {
+    setup:
+    DecryptingObjectMapper mapper = DecryptingObjectMapper.shared(true, false)
+
+    when:
+    String first = convert(mapper).kubeconfigFile
+    String second = convert(mapper).kubeconfigFile
+
+    then:
+    first == second
+    Paths.get(first).fileName.toString() ==~ /kubeconfigFile-[0-9a-f]{16}/
+    String name = mapper.newFilePath("kubeconfigFile", KUBECONFIG)
+    name != mapper.newFilePath("kubeconfigFile", KUBECONFIG + "2")
+    name != mapper.newFilePath("oAuthServiceAccount", KUBECONFIG)
+  }
+
+  void "secrets are not decrypted unless the mapper decrypts all of them"() {
+    setup:
+    Profile profile = newProfile()
+
+    when:
+    Map result = DecryptingObjectMapper.shared(false, false)
+        .convertToMap(account(KUBECONFIG), secretSessionManager, profile, OUTPUT)
+
+    then:
+    result.kubeconfigFile == KUBECONFIG
+    profile.decryptedFiles.isEmpty()
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.deployment.v1
+
+import com.netflix.spinnaker.halyard.core.error.v1.HalException
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskInterrupted
+import com.netflix.spinnaker.halyard.core.tasks.v1.TaskRepository
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.DistributedService.DeployPriority
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DeploySchedulerSpec extends Specification {
+  DaemonTask parent = new DaemonTask("Deploy", TimeUnit.MINUTES.toMillis(1))
+  List<String> events = Collections.synchronizedList([])
+
+  void setup() {
+    DaemonTaskHandler.setTask(parent)
+    DaemonTaskHandler.newStage("Deploying")
+  }
+
+  void cleanup() {
+    DaemonTaskHandler.setTask(null)
+  }
+
+  private Runnable deploy(String name, long millis = 50) {
+    return {
+      events << "start " + name
+      Thread.sleep(millis)
+      events << "end " + name
+    }
+  }
+
+  private boolean before(String first, String second) {
+    return events.indexOf(first) >= 0 && events.indexOf(first) < events.indexOf(second)
+  }
+
+  void "services start after the priority above them, or the services they declare"() {
+    setup:
+    DeployScheduler scheduler = new DeployScheduler(8)
+        .schedule("redis", new DeployPriority(3), deploy("redis"))
+        .schedule("clouddriver", new DeployPriority(2), deploy("clouddriver", 200))
+        .schedule("front50", new DeployPriority(2), deploy("front50"))
+        .schedule("gate", new DeployPriority(1), ["front50"], deploy("gate"))
+        .schedule("deck", new DeployPriority(0), deploy("deck"))
+
+    when:
+    scheduler.run()
+
+    then:
+    events.size() == 10
+    before("end redis", "start clouddriver")
+    before("end redis", "start front50")
+    before("end front50", "start gate")
+    before("start gate", "end clouddriver")
+    before("end gate", "start deck")
+  }
+
+  void "no more services run at once than the parallelism allows"() {
+    setup:
+    AtomicInteger current = new AtomicInteger()
+    AtomicInteger most = new AtomicInteger()
+    DeployScheduler scheduler = new DeployScheduler(2)
+    (1..5).each { i ->
+      scheduler.schedule("service-$i", new DeployPriority(0), {
+        most.accumulateAndGet(current.incrementAndGet(), { a, b -> Math.max(a, b) })
+        Thread.sleep(100)
+        current.decrementAndGet()
+        events << "end service-$i".toString()
+      })
+    }
+
+    when:
+    scheduler.run()
+
+    then:
+    events.size() == 5
+    most.get() == 2
+  }
+
+  void "the first failure interrupts the running services and starts no more"() {
+    setup:
+    CountDownLatch interrupted = new CountDownLatch(1)
+    DeployScheduler scheduler = new DeployScheduler(2)
+        .schedule("slow", new DeployPriority(1), {
+          try {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(30))
+          } catch (InterruptedException ignored) {
+            interrupted.countDown()
+          }
+        })
+        .schedule("broken", new DeployPriority(1), {
+          Thread.sleep(50)
+          throw new IllegalStateException("broken")
+        })
+        .schedule("later", new DeployPriority(0), deploy("later"))
+
+    when:
+    scheduler.run()
+
+    then:
+    thrown(HalException)
+    interrupted.await(10, TimeUnit.SECONDS)
+    events.isEmpty()
+  }
+
+  void "dependency cycles are reported"() {
+    setup:
+    DeployScheduler scheduler = new DeployScheduler(8)
+        .schedule("a", new DeployPriority(0), ["b"], deploy("a"))
+        .schedule("b", new DeployPriority(0), ["a"], deploy("b"))
+
+    when:
+    scheduler.run()
+
+    then:
+    IllegalStateException e = thrown()
+    e.message.contains("cycle")
+    events.isEmpty()
+  }
+
+  void "services interrupted before they start fail the deploy"() {
+    setup:
+    TaskRepository.setExecutor({ Runnable runnable ->
+      Thread.start {
+        while (parent.children.isEmpty()) {
+          Thread.sleep(10)
+        }
+        parent.children.each { it.interrupt() }
+        runnable.run()
+      }
+    } as Executor)
+    DeployScheduler scheduler = new DeployScheduler(8)
+        .schedule("orca", new DeployPriority(0), deploy("orca"))
+
+    when:
+    scheduler.run()
+
+    then:
+    thrown(DaemonTaskInterrupted)
+    events.isEmpty()
+
+    cleanup:
+    TaskRepository.setExecutor(Executors.newCachedThreadPool())
+  }
+
+  void "the timeout bounds the whole deploy rather than each service"() {
+    setup:
+    DeployScheduler scheduler = new DeployScheduler(8)
+        .setTimeoutMillis(1000)
+        .schedule("first", new DeployPriority(1), deploy("first", 600))
+        .schedule("second", new DeployPriority(0), deploy("second", 600))
+
+    when:
+    scheduler.run()
+
+    then:
+    thrown(DaemonTaskInterrupted)
+    events.contains("end first")
+    !events.contains("end second")
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.deployment.v1
+
+import com.netflix.spinnaker.halyard.config.model.v1.providers.kubernetes.KubernetesAccount
+import com.netflix.spinnaker.halyard.deploy.services.v1.GenerateService
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.ServiceSettings
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerService
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubectlServiceProvider
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubernetesV2Executor
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubernetesV2OrcaService
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2.KubernetesV2Utils
+import org.yaml.snakeyaml.Yaml
+import org.yaml.snakeyaml.constructor.SafeConstructor
+import spock.lang.Specification
+
+class KubectlDeployerSpec extends Specification {
+  static final String NAMESPACE = "spinnaker"
+  static final String SECRET = "kind: Secret\nmetadata:\n  name: spin-orca-files-abc\n"
+  static final String DEPLOYMENT = """
+kind: Deployment
+metadata:
+  name: spin-orca
+spec:
+  template:
+    spec:
+      volumes:
+      - secret:
+          secretName: spin-orca-files-abc
+"""
+
+  // What the executor has applied so far, and the config digests recorded on the deployments.
+  Set<String> applied = []
+  Map<String, String> liveDigests = [:]
+  int applyCalls = 0
+  List<String> deferred
+
+  KubernetesV2Executor executor = Stub(KubernetesV2Executor) {
+    deferring(_) >> { List<String> manifests ->
+      deferred = manifests
+      return executor
+    }
+    resourceKey(_) >> { String manifest -> manifest }
+    getExisting(NAMESPACE, _) >> { namespace, List<String> manifests ->
+      manifests.findAll { applied.contains(it) } as Set
+    }
+    getConfigDigests(NAMESPACE) >> { new HashMap<>(liveDigests) }
+    applyAll(_) >> { List<String> manifests ->
+      applyCalls++
+      applied.addAll(manifests)
+      manifests.each {
+        Map manifest = new Yaml(new SafeConstructor()).load(it)
+        String digest =
+            manifest.metadata?.annotations?.get(KubernetesV2Executor.CONFIG_DIGEST_ANNOTATION)
+        if (digest != null) {
+          liveDigests[manifest.metadata.name] = digest
+        }
+      }
+      return manifests
+    }
+  }
+
+  KubernetesV2OrcaService service = Stub(KubernetesV2OrcaService) {
+    getType() >> SpinnakerService.Type.ORCA
+    getServiceName() >> "spin-orca"
+    getNamespace(_) >> NAMESPACE
+    getNamespaceYaml(_) >> "kind: Namespace\nmetadata:\n  name: $NAMESPACE\n".toString()
+    getServiceYaml(_) >> "kind: Service\nmetadata:\n  name: spin-orca\n"
+    getResourceYaml(_, _, _) >> {
+      // Like replaceSecret, secrets that already exist are neither rewritten nor deferred.
+      if (!applied.contains(SECRET)) {
+        deferred.add(SECRET)
+      }
+      return DEPLOYMENT
+    }
+  }
+
+  KubectlDeployer deployer = new KubectlDeployer() {
+    @Override
+    KubernetesV2Executor newExecutor(KubernetesAccount account) {
+      return executor
+    }
+  }
+
+  void setup() {
+    deployer.kubernetesV2Utils = new KubernetesV2Utils(null, null, null)
+  }
+
+  private void deploy() {
+    KubectlServiceProvider serviceProvider = Stub(KubectlServiceProvider) {
+      getServicesByPriority(_) >> [service]
+    }
+    GenerateService.ResolvedConfiguration resolvedConfiguration =
+        Stub(GenerateService.ResolvedConfiguration) {
+          getServiceSettings(_) >> new ServiceSettings()
+        }
+
+    deployer.deploy(
+        serviceProvider,
+        new AccountDeploymentDetails<KubernetesAccount>().setAccount(new KubernetesAccount()),
+        resolvedConfiguration,
+        [SpinnakerService.Type.ORCA],
+        false,
+        true,
+        Optional.empty())
+  }
+
+  void "unchanged services are skipped on every deploy after the first"() {
+    when:
+    deploy()
+
+    then:
+    applyCalls == 1
+    applied.contains(SECRET)
+    liveDigests.containsKey("spin-orca")
+
+    when:
+    deploy()
+    deploy()
+
+    then:
+    applyCalls == 1
+  }
+}
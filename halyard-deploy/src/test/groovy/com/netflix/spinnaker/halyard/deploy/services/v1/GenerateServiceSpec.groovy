@@ -0,0 +1,171 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.spinnaker.halyard.deploy.services.v1
+
+import com.netflix.spinnaker.halyard.config.config.v1.HalconfigDirectoryStructure
+import com.netflix.spinnaker.halyard.config.config.v1.HalconfigParser
+import com.netflix.spinnaker.halyard.config.config.v1.RelaxedObjectMapper
+import com.netflix.spinnaker.halyard.config.config.v1.StrictObjectMapper
+import com.netflix.spinnaker.halyard.config.model.v1.node.DeploymentConfiguration
+import com.netflix.spinnaker.halyard.config.model.v1.node.Halconfig
+import com.netflix.spinnaker.halyard.config.model.v1.providers.kubernetes.KubernetesAccount
+import com.netflix.spinnaker.halyard.config.services.v1.DeploymentService
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler
+import com.netflix.spinnaker.halyard.deploy.deployment.v1.ServiceProviderFactory
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.SpinnakerRuntimeSettings
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.profile.Profile
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.ServiceSettings
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerService
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerServiceProvider
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class GenerateServiceSpec extends Specification {
+  static final String DEPLOYMENT = "default"
+
+  Path halconfigDir
+  Halconfig halconfig
+  HalconfigParser parser
+  List<SpinnakerService> services = []
+  SpinnakerRuntimeSettings runtimeSettings = new SpinnakerRuntimeSettings()
+  List<DeploymentConfiguration> rendered = [].asSynchronized()
+
+  void setup() {
+    halconfigDir = Files.createTempDirectory("halconfig")
+    Files.createDirectories(halconfigDir.resolve("profiles"))
+
+    DeploymentConfiguration deploymentConfiguration = new DeploymentConfiguration()
+    deploymentConfiguration.name = DEPLOYMENT
+    ["bootstrap", "prod"].each {
+      deploymentConfiguration.providers.kubernetes.accounts.add(new KubernetesAccount().setName(it))
+    }
+    halconfig = new Halconfig()
+    halconfig.deploymentConfigurations.add(deploymentConfiguration)
+
+    parser = new HalconfigParser()
+    parser.objectMapper = new StrictObjectMapper()
+    parser.halconfigDirectoryStructure = directoryStructure()
+
+    // Like clouddriver's, this service leaves an account out of the config while rendering it.
+    services.add(service(SpinnakerService.Type.CLOUDDRIVER) { DeploymentConfiguration d ->
+      List<KubernetesAccount> accounts = d.providers.kubernetes.accounts
+      KubernetesAccount bootstrap = accounts.remove(0)
+      Thread.sleep(200)
+      String contents = accounts*.name.join(",")
+      accounts.add(0, bootstrap)
+      return contents
+    })
+    [SpinnakerService.Type.ECHO, SpinnakerService.Type.FRONT50, SpinnakerService.Type.GATE].each {
+      services.add(service(it) { DeploymentConfiguration d ->
+        Thread.sleep(50)
+        return d.providers.kubernetes.accounts*.name.join(",")
+      })
+    }
+    services.each {
+      runtimeSettings.setServiceSettings(it.type, new ServiceSettings().setEnabled(true))
+    }
+
+    DaemonTaskHandler.setTask(new DaemonTask("Generate", 0))
+    DaemonTaskHandler.setContext(halconfig)
+  }
+
+  void cleanup() {
+    DaemonTaskHandler.setTask(null)
+    halconfigDir.toFile().deleteDir()
+  }
+
+  private HalconfigDirectoryStructure directoryStructure() {
+    return Stub(HalconfigDirectoryStructure) {
+      getHalconfigPath() >> halconfigDir.resolve("config").toString()
+      getStagingPath(DEPLOYMENT) >> halconfigDir.resolve("staging")
+      getUserProfilePath(DEPLOYMENT) >> halconfigDir.resolve("profiles")
+    }
+  }
+
+  private SpinnakerService service(SpinnakerService.Type type, Closure<String> render) {
+    return Stub(SpinnakerService) {
+      getType() >> type
+      getCanonicalName() >> type.canonicalName
+      getProfiles(_, _) >> { DeploymentConfiguration d, SpinnakerRuntimeSettings s ->
+        rendered.add(d)
+        String name = type.canonicalName + ".yml"
+        return [new Profile(name, "1.0.0", "/opt/spinnaker/config/" + name, "")
+            .setContents(render(d))]
+      }
+    }
+  }
+
+  private GenerateService generateService(int parallelism) {
+    SpinnakerServiceProvider serviceProvider = Stub(SpinnakerServiceProvider) {
+      getServices() >> services
+      buildRuntimeSettings(_) >> runtimeSettings
+    }
+
+    GenerateService generateService = new GenerateService()
+    generateService.deploymentService = Stub(DeploymentService) {
+      getDeploymentConfiguration(DEPLOYMENT) >> {
+        parser.getHalconfig().deploymentConfigurations[0]
+      }
+    }
+    generateService.serviceProviderFactory = Stub(ServiceProviderFactory) {
+      create(_) >> serviceProvider
+    }
+    generateService.halconfigDirectoryStructure = parser.halconfigDirectoryStructure
+    generateService.relaxedObjectMapper = new RelaxedObjectMapper()
+    generateService.halconfigParser = parser
+    generateService.parallelism = parallelism
+    return generateService
+  }
+
+  private Map<SpinnakerService.Type, String> contents(
+      GenerateService.ResolvedConfiguration config) {
+    return services.collectEntries {
+      [(it.type): config.getProfilesForService(it.type)[it.canonicalName + ".yml"].contents]
+    }
+  }
+
+  void "services generated in parallel see the same config as when generated one at a time"() {
+    setup:
+    parser.getHalconfig()
+
+    when:
+    Map serial = contents(generateService(1).generateConfig(DEPLOYMENT, services*.type))
+    Map parallel = contents(generateService(8).generateConfig(DEPLOYMENT, services*.type))
+
+    then:
+    serial[SpinnakerService.Type.CLOUDDRIVER] == "prod"
+    serial[SpinnakerService.Type.GATE] == "bootstrap,prod"
+    parallel == serial
+  }
+
+  void "generating services leaves the task's halconfig untouched"() {
+    setup:
+    parser.getHalconfig()
+
+    when:
+    generateService(8).generateConfig(DEPLOYMENT, services*.type)
+
+    then:
+    DeploymentConfiguration deploymentConfiguration = halconfig.deploymentConfigurations[0]
+    rendered.size() == services.size()
+    rendered.every { !it.is(deploymentConfiguration) }
+    deploymentConfiguration.providers.kubernetes.accounts*.name == ["bootstrap", "prod"]
+    deploymentConfiguration.parent.is(halconfig)
+  }
+}
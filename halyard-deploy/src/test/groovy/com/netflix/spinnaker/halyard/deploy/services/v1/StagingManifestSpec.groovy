@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.services.v1
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.profile.Profile
+import com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.SpinnakerService
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.nio.file.Path
+
+class StagingManifestSpec extends Specification {
+  Path staging
+
+  void setup() {
+    staging = Files.createTempDirectory("staging")
+  }
+
+  void cleanup() {
+    staging.toFile().deleteDir()
+  }
+
+  private static Map<String, Profile> profiles(String contents) {
+    Profile profile = new Profile("gate.yml", "1.0.0", "/opt/spinnaker/config/gate.yml", "")
+    profile.appendContents(contents)
+    return ["gate.yml": profile]
+  }
+
+  void "services are only changed when their profiles are"() {
+    setup:
+    StagingManifest manifest = new StagingManifest()
+
+    expect:
+    manifest.update(SpinnakerService.Type.GATE, profiles("a: b"))
+    !manifest.update(SpinnakerService.Type.GATE, profiles("a: b"))
+    manifest.update(SpinnakerService.Type.GATE, profiles("a: c"))
+  }
+
+  void "required file contents are part of a profile's digest"() {
+    setup:
+    Path required = Files.createFile(staging.resolve("required"))
+    Profile profile = profiles("a: b")["gate.yml"]
+    profile.requiredFiles.add(required.toString())
+
+    when:
+    String before = StagingManifest.digest(profile)
+    required.toFile().text = "changed"
+
+    then:
+    StagingManifest.digest(profile) != before
+  }
+
+  void "manifests survive a round trip through the staging directory"() {
+    setup:
+    ObjectMapper objectMapper = new ObjectMapper()
+    StagingManifest manifest = new StagingManifest()
+    manifest.update(SpinnakerService.Type.GATE, profiles("a: b"))
+
+    when:
+    manifest.write(objectMapper, staging)
+    StagingManifest read = StagingManifest.read(objectMapper, staging)
+
+    then:
+    read.services == manifest.services
+    read.stagedProfileNames() == ["gate.yml"] as Set
+    !read.update(SpinnakerService.Type.GATE, profiles("a: b"))
+  }
+
+  void "missing manifests mark every service as changed"() {
+    expect:
+    StagingManifest.read(new ObjectMapper(), staging).update(SpinnakerService.Type.GATE, [:])
+  }
+}
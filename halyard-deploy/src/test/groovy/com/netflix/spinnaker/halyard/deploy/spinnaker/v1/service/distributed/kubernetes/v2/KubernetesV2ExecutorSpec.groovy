@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2
+
+import com.netflix.spinnaker.halyard.config.model.v1.providers.kubernetes.KubernetesAccount
+import com.netflix.spinnaker.halyard.core.job.v1.JobExecutor
+import com.netflix.spinnaker.halyard.core.job.v1.JobStatus
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class KubernetesV2ExecutorSpec extends Specification {
+  KubernetesAccount account = new KubernetesAccount().setServiceAccount(true)
+  KubernetesV2Utils utils = new KubernetesV2Utils(null, null, null)
+
+  private KubernetesV2Executor executorReturning(JobStatus status) {
+    JobExecutor jobExecutor = Stub(JobExecutor) {
+      startJob(_) >> "job"
+      backoffWait("job") >> status
+    }
+    return new KubernetesV2Executor(jobExecutor, account, utils)
+  }
+
+  void "config digests are read from each deployment's annotation"() {
+    setup:
+    def executor = executorReturning(new JobStatus()
+        .setState(JobStatus.State.COMPLETED)
+        .setResult(JobStatus.Result.SUCCESS)
+        .setStdOut("spin-orca\tabc\nspin-gate\t\nspin-front50\tdef\n"))
+
+    expect:
+    executor.getConfigDigests("spinnaker") == ["spin-orca": "abc", "spin-front50": "def"]
+  }
+
+  void "no config digests are read when the deployments can't be listed"() {
+    setup:
+    def executor = executorReturning(new JobStatus()
+        .setState(JobStatus.State.COMPLETED)
+        .setResult(JobStatus.Result.FAILURE)
+        .setStdOut("spin-orca\tabc\n"))
+
+    expect:
+    executor.getConfigDigests("spinnaker").isEmpty()
+  }
+
+  @Unroll
+  void "server-side apply is supported by kubectl #major.#minor: #expected"() {
+    expect:
+    KubernetesV2Executor.supportsServerSideApply(
+        """{"clientVersion": {"major": "$major", "minor": "$minor"}}""") == expected
+
+    where:
+    major | minor | expected
+    "1"   | "15"  | false
+    "1"   | "17+" | false
+    "1"   | "18"  | true
+    "1"   | "20+" | true
+    "2"   | "0"   | true
+  }
+
+  void "kubectl versions that can't be parsed don't use server-side apply"() {
+    expect:
+    !KubernetesV2Executor.supportsServerSideApply("Client Version: v1.18.0")
+  }
+
+  @Unroll
+  void "the minor version of kubectl #major.#minor is #expected"() {
+    expect:
+    KubernetesV2Executor.kubectlMinorVersion(
+        """{"clientVersion": {"major": "$major", "minor": "$minor"}}""") == expected
+
+    where:
+    major | minor | expected
+    "1"   | "15"  | 15
+    "1"   | "16+" | 16
+    "2"   | "0"   | Integer.MAX_VALUE
+    "0"   | "99"  | -1
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2
+
+import com.netflix.spinnaker.halyard.core.job.v1.JobExecutor
+import com.netflix.spinnaker.halyard.core.job.v1.JobStatus
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask
+import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class KubernetesV2ReadinessTrackerSpec extends Specification {
+  // Each event is "type|cluster|generation|observedGeneration|replicas (spec)|replicas (status)|
+  // updated replicas|available replicas".
+  void "services are ready once their deployments are rolled out"() {
+    setup:
+    List<String> events = [
+        "ADDED|spin-orca|2|1|1|1|0|1",
+        "ADDED|spin-gate|3|3|2|3|2|3",
+        "MODIFIED|spin-orca|2|2|1|2|1|2",
+        "MODIFIED|spin-orca|2|2|1|1|1|1",
+        "DELETED|spin-gate|3|3|2|3|2|3",
+        "ADDED|spin-gate|1|1|2|2|2|2",
+    ]
+    JobExecutor executor = Stub(JobExecutor) {
+      startJob(_, _, _, _, _) >> { request, env, stdIn, OutputStream stdOut, stdErr ->
+        events.each { stdOut.write((it + "\n").bytes) }
+        return "watch"
+      }
+      updateJob("watch") >> new JobStatus().setState(JobStatus.State.RUNNING)
+    }
+    def tracker = new KubernetesV2ReadinessTracker(executor, ["kubectl"], "spinnaker", true)
+
+    when:
+    tracker.awaitReady("spin-orca")
+    tracker.awaitReady("spin-gate")
+
+    then:
+    noExceptionThrown()
+
+    cleanup:
+    tracker.close()
+  }
+
+  @Unroll
+  void "a deployment with #description is rolled out: #expected"() {
+    setup:
+    def tracker = new KubernetesV2ReadinessTracker(
+        Stub(JobExecutor), ["kubectl"], "spinnaker", true)
+
+    when:
+    tracker.onWatchEvent("MODIFIED|spin-orca|" + fields)
+
+    then:
+    tracker.@rollouts["spin-orca"].complete == expected
+
+    where:
+    description                       | fields        | expected
+    "every replica updated"           | "2|2|2|2|2|2" | true
+    "a spec not yet observed"         | "3|2|2|2|2|2" | false
+    "too few updated replicas"        | "2|2|2|2|1|2" | false
+    "replicas of the old replica set" | "2|2|2|3|2|3" | false
+    "updated replicas not available"  | "2|2|2|2|2|1" | false
+    "no status yet"                   | "1|||||"      | false
+    "no replicas"                     | "1|1|0|||"    | true
+  }
+
+  void "deployments are polled when they can't be watched"() {
+    setup:
+    JobExecutor executor = Stub(JobExecutor) {
+      startJob(_) >> "poll"
+      backoffWait("poll") >>> [
+          new JobStatus()
+              .setState(JobStatus.State.COMPLETED)
+              .setResult(JobStatus.Result.SUCCESS)
+              .setStdOut("ADDED|spin-orca|2|2|1|2|1|2\n"),
+          new JobStatus()
+              .setState(JobStatus.State.COMPLETED)
+              .setResult(JobStatus.Result.SUCCESS)
+              .setStdOut("ADDED|spin-orca|2|2|1|1|1|1\n"),
+      ]
+    }
+    def tracker = new KubernetesV2ReadinessTracker(executor, ["kubectl"], "spinnaker", false)
+    tracker.start()
+
+    when:
+    long millis = tracker.awaitReady("spin-orca")
+
+    then:
+    millis >= 4000
+
+    cleanup:
+    tracker.close()
+  }
+
+  void "the watch outlives the child tasks waiting on it"() {
+    setup:
+    DaemonTask parent = new DaemonTask("Deploy", 0)
+    DaemonTaskHandler.setTask(parent)
+    JobExecutor executor = DaemonTaskHandler.getJobExecutor()
+    String events = "ADDED|spin-orca|1|1|1|1|1|1\\nADDED|spin-gate|1|1|1|1|1|1\\n"
+    def tracker = new KubernetesV2ReadinessTracker(
+        executor, ["sh", "-c", "printf '$events'; sleep 60"], "spinnaker", true)
+    tracker.start()
+    String jobId = tracker.@jobId
+
+    when: "a child task waits on a service, and completes"
+    DaemonTask child = new DaemonTask("Wait for spin-orca", 0)
+    Thread waiter = new Thread({
+      DaemonTaskHandler.setTask(child)
+      tracker.awaitReady("spin-orca")
+      child.cleanupResources()
+    })
+    waiter.start()
+    waiter.join()
+    tracker.awaitReady("spin-gate")
+
+    then:
+    parent.runningJobs == [jobId]
+    tracker.@jobId == jobId
+    executor.updateJob(jobId).state == JobStatus.State.RUNNING
+
+    cleanup:
+    tracker.close()
+    DaemonTaskHandler.setTask(null)
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Armory, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.spinnaker.halyard.deploy.spinnaker.v1.service.distributed.kubernetes.v2
+
+import org.yaml.snakeyaml.Yaml
+import org.yaml.snakeyaml.constructor.SafeConstructor
+import spock.lang.Specification
+
+class KubernetesV2UtilsSpec extends Specification {
+  KubernetesV2Utils utils = new KubernetesV2Utils(null, null, null)
+
+  String deployment = """
+apiVersion: apps/v1
+kind: Deployment
+metadata:
+  name: spin-orca
+  annotations:
+    existing: annotation
+spec:
+  template:
+    metadata:
+      labels:
+        cluster: spin-orca
+"""
+
+  void "config digests only change with the manifest"() {
+    setup:
+    String digest = utils.configDigest(deployment)
+
+    expect:
+    utils.configDigest(deployment) == digest
+    utils.configDigest(deployment.replace("orca", "gate")) != digest
+  }
+
+  void "annotations are added to the deployment's metadata rather than its pod template"() {
+    when:
+    Map annotated = new Yaml(new SafeConstructor()).load(
+        utils.annotate(deployment, KubernetesV2Executor.CONFIG_DIGEST_ANNOTATION, "abc"))
+
+    then:
+    annotated.metadata.annotations == [
+        existing: "annotation",
+        (KubernetesV2Executor.CONFIG_DIGEST_ANNOTATION): "abc"
+    ]
+    annotated.spec.template.metadata == [labels: [cluster: "spin-orca"]]
+  }
+
+  void "manifests without metadata are given some"() {
+    when:
+    Map annotated = new Yaml(new SafeConstructor()).load(
+        utils.annotate("kind: Deployment\n", "key", "value"))
+
+    then:
+    annotated.metadata.annotations == [key: "value"]
+  }
+}
@@ -18,14 +18,23 @@ package com.netflix.spinnaker.halyard.controllers.v1;
 
 import com.netflix.spinnaker.halyard.config.config.v1.HalconfigParser;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Halconfig;
+import com.netflix.spinnaker.halyard.config.model.v1.node.Node;
+import com.netflix.spinnaker.halyard.config.services.v1.ConfigBatchService;
 import com.netflix.spinnaker.halyard.config.services.v1.ConfigService;
+import com.netflix.spinnaker.halyard.config.services.v1.ValidateService;
+import com.netflix.spinnaker.halyard.config.validate.v1.ValidatorClientCache;
+import com.netflix.spinnaker.halyard.core.ConfigEdit;
 import com.netflix.spinnaker.halyard.core.DaemonResponse;
 import com.netflix.spinnaker.halyard.core.DaemonResponse.StaticRequestBuilder;
 import com.netflix.spinnaker.halyard.core.StringBodyRequest;
 import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import com.netflix.spinnaker.halyard.models.v1.ValidationSettings;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -38,6 +47,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class ConfigController {
   private final ConfigService configService;
   private final HalconfigParser halconfigParser;
+  private final ConfigBatchService configBatchService;
+  private final ValidatorClientCache validatorClientCache;
 
   @RequestMapping(value = "/", method = RequestMethod.GET)
   DaemonTask<Halconfig, Halconfig> config() {
@@ -61,4 +72,29 @@ public class ConfigController {
     builder.setValidate(ProblemSet::new);
     return DaemonTaskHandler.submitTask(builder::build, "Set current deployment");
   }
+
+  @RequestMapping(value = "/batch", method = RequestMethod.POST)
+  DaemonTask<Halconfig, Void> batch(
+      @ModelAttribute ValidationSettings validationSettings, @RequestBody List<ConfigEdit> edits) {
+    List<Node> touched = new ArrayList<>();
+    DaemonResponse.UpdateRequestBuilder builder = new DaemonResponse.UpdateRequestBuilder();
+    builder.setUpdate(() -> touched.addAll(configBatchService.applyEdits(edits)));
+    builder.setRevert(halconfigParser::undoChanges);
+    builder.setSave(halconfigParser::saveConfig);
+    builder.setClean(() -> configBatchService.cleanLocalFiles(touched));
+    builder.setSeverity(validationSettings.getSeverity());
+    if (validationSettings.isValidate()) {
+      builder.setValidate(
+          () -> ValidateService.withCachedResults(() -> configBatchService.validateEdits(touched)));
+    } else {
+      builder.setValidate(ProblemSet::new);
+    }
+
+    return DaemonTaskHandler.submitTask(builder::build, "Apply " + edits.size() + " edits");
+  }
+
+  @RequestMapping(value = "/validatorClients/stats", method = RequestMethod.GET)
+  ValidatorClientCache.Stats validatorClientStats() {
+    return validatorClientCache.getStats();
+  }
 }
@@ -3,9 +3,12 @@ package com.netflix.spinnaker.halyard.controllers.v1;
 import com.google.longrunning.GetOperationRequest;
 import com.google.longrunning.OperationsGrpc;
 import com.netflix.spinnaker.halyard.config.model.v1.node.Halconfig;
+import com.netflix.spinnaker.halyard.core.secrets.v1.SecretSessionManager;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
 import com.netflix.spinnaker.halyard.core.tasks.v1.ShallowTaskList;
 import com.netflix.spinnaker.halyard.core.tasks.v1.TaskRepository;
+import com.netflix.spinnaker.halyard.core.tasks.v1.TaskUpdates;
+import java.util.concurrent.TimeUnit;
 import org.lognet.springboot.grpc.GRpcService;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +18,8 @@ import retrofit.http.Body;
 @RestController
 @RequestMapping("/v1/tasks")
 public class TaskController extends OperationsGrpc.OperationsImplBase {
+  private static final long MAX_UPDATE_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
   @RequestMapping(value = "/{uuid:.+}/", method = RequestMethod.GET)
   DaemonTask<Halconfig, Void> getTask(@PathVariable String uuid) {
     return TaskRepository.getTask(uuid);
@@ -31,11 +36,36 @@ public class TaskController extends OperationsGrpc.OperationsImplBase {
     task.interrupt();
   }
 
+  @RequestMapping(value = "/{uuid:.+}/events", method = RequestMethod.GET)
+  TaskUpdates getTaskUpdates(
+      @PathVariable String uuid,
+      @RequestParam(value = "sinceEvent", defaultValue = "0") long sinceEvent,
+      @RequestParam(value = "waitMillis", defaultValue = "10000") long waitMillis)
+      throws InterruptedException {
+    DaemonTask task = TaskRepository.getTask(uuid);
+
+    if (task == null) {
+      throw new TaskNotFoundException("No such task with UUID " + uuid);
+    }
+
+    return task.awaitUpdates(sinceEvent, Math.min(waitMillis, MAX_UPDATE_WAIT_MILLIS));
+  }
+
   @RequestMapping(value = "/", method = RequestMethod.GET)
   ShallowTaskList getTasks() {
     return TaskRepository.getTasks();
   }
 
+  @RequestMapping(value = "/stats", method = RequestMethod.GET)
+  TaskRepository.Stats getStats() {
+    return TaskRepository.getStats();
+  }
+
+  @RequestMapping(value = "/secrets/stats", method = RequestMethod.GET)
+  SecretSessionManager.Stats getSecretStats() {
+    return SecretSessionManager.getStats();
+  }
+
   @ResponseStatus(value = HttpStatus.NOT_FOUND)
   public final class TaskNotFoundException extends RuntimeException {
     public TaskNotFoundException(String msg) {
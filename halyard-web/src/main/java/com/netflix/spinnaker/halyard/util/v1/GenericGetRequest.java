@@ -21,6 +21,7 @@ import com.netflix.spinnaker.halyard.core.DaemonResponse;
 import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTask;
 import com.netflix.spinnaker.halyard.core.tasks.v1.DaemonTaskHandler;
+import com.netflix.spinnaker.halyard.core.tasks.v1.TaskRepository;
 import com.netflix.spinnaker.halyard.models.v1.ValidationSettings;
 import java.util.function.Supplier;
 import lombok.Builder;
@@ -37,6 +38,9 @@ public class GenericGetRequest<T> {
     builder.setSeverity(validationSettings.getSeverity());
     if (validationSettings.isValidate()) {
       builder.setValidateResponse(validator);
+    } else if (RequestUtils.isSyncRequested()) {
+      // Without validation most reads take a few millis, don't make the client poll for them.
+      return TaskRepository.runTask(builder::build, description);
     }
     return DaemonTaskHandler.submitTask(builder::build, description);
   }
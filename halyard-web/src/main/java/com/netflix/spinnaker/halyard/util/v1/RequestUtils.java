@@ -17,13 +17,21 @@
 package com.netflix.spinnaker.halyard.util.v1;
 
 import com.netflix.spinnaker.halyard.config.config.v1.HalconfigParser;
+import com.netflix.spinnaker.halyard.config.services.v1.ValidateService;
 import com.netflix.spinnaker.halyard.core.DaemonResponse;
 import com.netflix.spinnaker.halyard.core.problem.v1.ProblemSet;
 import com.netflix.spinnaker.halyard.models.v1.ValidationSettings;
 import java.nio.file.Path;
 import java.util.function.Supplier;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 class RequestUtils {
+  // Clients that can handle a completed task in place of one to poll set this query parameter.
+  private static final String SYNC_PARAMETER = "sync";
+
   static DaemonResponse.UpdateRequestBuilder getUpdateRequestBuilder(
       HalconfigParser halconfigParser) {
     DaemonResponse.UpdateRequestBuilder builder = new DaemonResponse.UpdateRequestBuilder();
@@ -38,7 +46,7 @@ class RequestUtils {
       Supplier<ProblemSet> validator) {
     builder.setSeverity(validationSettings.getSeverity());
     if (validationSettings.isValidate()) {
-      builder.setValidate(validator);
+      builder.setValidate(() -> ValidateService.withCachedResults(validator));
     } else {
       builder.setValidate(ProblemSet::new);
     }
@@ -50,4 +58,14 @@ class RequestUtils {
       Path stagePath) {
     builder.setClean(() -> halconfigParser.cleanLocalFiles(stagePath));
   }
+
+  static boolean isSyncRequested() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (!(attributes instanceof ServletRequestAttributes)) {
+      return false;
+    }
+
+    HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+    return Boolean.parseBoolean(request.getParameter(SYNC_PARAMETER));
+  }
 }